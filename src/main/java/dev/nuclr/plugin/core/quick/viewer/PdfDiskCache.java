@@ -0,0 +1,158 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent second-level cache of rendered pages, shared by all viewers.
+ *
+ * <p>Pages are stored as PNG files in {@code pdf-quick-viewer-cache} under the
+ * plugin config directory, named after the document fingerprint
+ * ({@link PdfDocumentId}), page, DPI and backend. The fingerprint covers the
+ * content alone, so entries stay valid across restarts, renames and copies but
+ * never outlive a change to the file. The directory is capped at
+ * {@code pdf.quickView.diskCacheMegabytes}; the least recently used files
+ * (by modification time, refreshed on every hit) are deleted first.
+ *
+ * <p>Reads happen on the render thread; writes and eviction run on virtual
+ * threads so a slow disk never delays the page on screen.
+ */
+@Slf4j
+public final class PdfDiskCache {
+
+    private static final PdfDiskCache INSTANCE = new PdfDiskCache();
+
+    /** After eviction the directory is trimmed to this fraction of the cap. */
+    private static final double TRIM_RATIO = 0.9;
+
+    private final Path dir;
+    private final long maxBytes;
+
+    /** Approximate directory size; -1 until the first scan. */
+    private final AtomicLong    totalBytes = new AtomicLong(-1);
+    private final AtomicBoolean evicting   = new AtomicBoolean();
+
+    private PdfDiskCache() {
+        this.dir      = PdfSettings.configDir().resolve("pdf-quick-viewer-cache");
+        this.maxBytes = PdfSettings.getInstance().getDiskCacheMegabytes() * 1024L * 1024L;
+    }
+
+    public static PdfDiskCache getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /** Load a cached page, or null on a miss or unreadable entry. */
+    public BufferedImage get(String documentId, int pageIndex, float dpi, String backend) {
+        if (!isEnabled()) return null;
+        Path file = fileFor(documentId, pageIndex, dpi, backend);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            BufferedImage img = ImageIO.read(file.toFile());
+            if (img == null) throw new IOException("unreadable image");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return img;
+        } catch (IOException e) {
+            log.debug("Dropping disk cache entry {}: {}", file.getFileName(), e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /** Store a page in the background; failures are logged and ignored. */
+    public void putAsync(String documentId, int pageIndex, float dpi, String backend, BufferedImage img) {
+        if (!isEnabled()) return;
+        Thread.ofVirtual().name("pdf-disk-cache-write").start(() -> {
+            Path file = fileFor(documentId, pageIndex, dpi, backend);
+            if (Files.exists(file)) return;
+            try {
+                Files.createDirectories(dir);
+                Path tmp = Files.createTempFile(dir, "page-", ".tmp");
+                try {
+                    ImageIO.write(img, "png", tmp.toFile());
+                    long size = Files.size(tmp);
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    if (totalBytes.get() >= 0) totalBytes.addAndGet(size);
+                } finally {
+                    deleteQuietly(tmp);
+                }
+                evictIfNeeded();
+            } catch (IOException e) {
+                log.warn("Could not write disk cache entry: {}", e.getMessage());
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private Path fileFor(String documentId, int pageIndex, float dpi, String backend) {
+        String safeBackend = backend.replaceAll("[^A-Za-z0-9]", "_");
+        return dir.resolve(documentId
+                + "-p" + pageIndex
+                + "-d" + Math.round(dpi * 100)
+                + "-" + safeBackend + ".png");
+    }
+
+    private void evictIfNeeded() throws IOException {
+        if (totalBytes.get() >= 0 && totalBytes.get() <= maxBytes) return;
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            List<CachedFile> files = new ArrayList<>();
+            try (Stream<Path> s = Files.list(dir)) {
+                s.filter(p -> p.getFileName().toString().endsWith(".png"))
+                 .forEach(p -> files.add(new CachedFile(p, sizeQuietly(p), lastModifiedQuietly(p))));
+            }
+            long total = 0;
+            for (CachedFile f : files) total += f.size();
+            if (total > maxBytes) {
+                files.sort(Comparator.comparing(CachedFile::lastModified));
+                long target  = (long) (maxBytes * TRIM_RATIO);
+                int  removed = 0;
+                for (CachedFile f : files) {
+                    if (total <= target) break;
+                    if (deleteQuietly(f.path())) {
+                        total -= f.size();
+                        removed++;
+                    }
+                }
+                log.debug("Disk cache trimmed: {} files removed, {} KB left", removed, total / 1024);
+            }
+            totalBytes.set(total);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {}
+
+    private static long sizeQuietly(Path f) {
+        try { return Files.size(f); }
+        catch (IOException e) { return 0; }
+    }
+
+    private static FileTime lastModifiedQuietly(Path f) {
+        try { return Files.getLastModifiedTime(f); }
+        catch (IOException e) { return FileTime.fromMillis(0); }
+    }
+
+    private static boolean deleteQuietly(Path f) {
+        try { return Files.deleteIfExists(f); }
+        catch (IOException e) { return false; }
+    }
+}
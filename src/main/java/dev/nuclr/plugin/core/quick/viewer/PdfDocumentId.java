@@ -0,0 +1,71 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Content fingerprint used as the document identity in every cache tier.
+ *
+ * <p>A SHA-256 of the length and every byte of the document. It depends on
+ * the content alone, so a renamed, moved or copied file shares its cached
+ * pages with the original, while any edit, even one that keeps the length,
+ * yields a new identity and never serves stale pages from the persistent tier.
+ * Where a file lives and when it was written is tracked separately, by the
+ * {@link PdfOpenDocuments.Stamp} of open documents.
+ *
+ * <p>Hashing reads the whole file, so {@link #ofAsync} runs it while the
+ * backend parses the document rather than before.
+ */
+final class PdfDocumentId {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private PdfDocumentId() {}
+
+    static String of(PdfSource source) throws IOException {
+        MessageDigest digest = newDigest();
+        long length = source.length();
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(length).flip());
+
+        if (source.isFile()) {
+            try (FileChannel ch = FileChannel.open(source.file(), StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK_BYTES);
+                while (ch.read(buf) >= 0) {
+                    digest.update(buf.flip());
+                    buf.clear();
+                }
+            }
+        } else {
+            digest.update(source.bytes());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** {@link #of} on a virtual thread; completes exceptionally with an {@link UncheckedIOException}. */
+    static CompletableFuture<String> ofAsync(PdfSource source) {
+        CompletableFuture<String> id = new CompletableFuture<>();
+        Thread.ofVirtual().name("pdf-fingerprint").start(() -> {
+            try { id.complete(of(source)); }
+            catch (IOException e) { id.completeExceptionally(new UncheckedIOException(e)); }
+            catch (RuntimeException e) { id.completeExceptionally(e); }
+        });
+        return id;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
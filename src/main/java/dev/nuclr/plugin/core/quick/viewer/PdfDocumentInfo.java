@@ -2,6 +2,9 @@ package dev.nuclr.plugin.core.quick.viewer;
 
 /**
  * Metadata about an opened PDF document.
+ *
+ * <p>Backends report page count and version when the document is opened;
+ * title and author may stay null until {@code readMetadata} fills them in.
  */
 public record PdfDocumentInfo(
         String title,
@@ -13,4 +16,9 @@ public record PdfDocumentInfo(
     public static PdfDocumentInfo ofEncrypted() {
         return new PdfDocumentInfo(null, null, 0, null, true);
     }
+
+    /** Copy with title and author filled in, as read after the first page is shown. */
+    public PdfDocumentInfo withMetadata(String title, String author) {
+        return new PdfDocumentInfo(title, author, pageCount, pdfVersion, encrypted);
+    }
 }
@@ -0,0 +1,145 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import dev.nuclr.plugin.QuickViewItem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Reads an item that is not a local file (network share, archive entry) into
+ * memory on a virtual thread, so the loader can look at the start of the
+ * document while the rest is still arriving.
+ *
+ * <p>Waiting callers pass a cancellation token that is checked every
+ * {@link #POLL_MS}, so a superseded load does not sit out the download.
+ */
+final class PdfDownload implements AutoCloseable {
+
+    private static final int  CHUNK_BYTES = 64 * 1024;
+    private static final int  MAX_BYTES   = Integer.MAX_VALUE - 8;
+    private static final long POLL_MS     = 100;
+
+    private final ReentrantLock lock     = new ReentrantLock();
+    private final Condition     progress = lock.newCondition();
+
+    // Guarded by lock
+    private byte[]      buffer;
+    private int         length;
+    private boolean     done;
+    private IOException failure;
+
+    private volatile boolean closed;
+
+    private PdfDownload(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /** Start reading {@code item} in the background. */
+    static PdfDownload start(QuickViewItem item) {
+        long size = item.sizeBytes();
+        PdfDownload download = new PdfDownload(size > 0 && size <= MAX_BYTES ? (int) size : CHUNK_BYTES);
+        Thread.ofVirtual().name("pdf-download").start(() -> download.copy(item));
+        return download;
+    }
+
+    /**
+     * Wait until the first {@code bytes} have arrived or the stream has ended.
+     *
+     * @return a copy of up to {@code bytes} bytes from the start of the stream
+     * @throws IOException           if the stream failed before that many bytes arrived
+     * @throws CancellationException if {@code cancelled} returned true meanwhile
+     */
+    byte[] awaitPrefix(long bytes, BooleanSupplier cancelled) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            while (length < bytes && !done) {
+                if (cancelled.getAsBoolean()) throw new CancellationException("Load superseded");
+                progress.await(POLL_MS, TimeUnit.MILLISECONDS);
+            }
+            if (length < bytes && failure != null) throw failure;
+            return Arrays.copyOf(buffer, (int) Math.min(length, bytes));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for the whole stream.
+     *
+     * @throws IOException           if the stream failed
+     * @throws CancellationException if {@code cancelled} returned true meanwhile
+     */
+    byte[] awaitAll(BooleanSupplier cancelled) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            while (!done) {
+                if (cancelled.getAsBoolean()) throw new CancellationException("Load superseded");
+                progress.await(POLL_MS, TimeUnit.MILLISECONDS);
+            }
+            if (failure != null) throw failure;
+            return buffer.length == length ? buffer : Arrays.copyOf(buffer, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isDone() {
+        lock.lock();
+        try {
+            return done;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stop reading after the current chunk. */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void copy(QuickViewItem item) {
+        IOException error = null;
+        try (InputStream in = item.openStream()) {
+            byte[] chunk = new byte[CHUNK_BYTES];
+            int n;
+            while ((n = in.read(chunk)) >= 0) {
+                if (closed) throw new IOException("Download stopped");
+                append(chunk, n);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        lock.lock();
+        try {
+            done    = true;
+            failure = error;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(byte[] chunk, int n) throws IOException {
+        lock.lock();
+        try {
+            if (length + (long) n > MAX_BYTES) throw new IOException("Document larger than 2 GB");
+            if (length + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(MAX_BYTES, Math.max(length + n, buffer.length * 2L)));
+            }
+            System.arraycopy(chunk, 0, buffer, length, n);
+            length += n;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
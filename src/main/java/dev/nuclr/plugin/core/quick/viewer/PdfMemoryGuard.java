@@ -0,0 +1,167 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide watch on the tenured heap, so the viewer gives memory back
+ * before the host application runs out of it.
+ *
+ * <p>When the first listener registers, thresholds are set on every heap pool that
+ * supports them (with the usual collectors, only the old generation does):
+ * a usage threshold at {@link #ELEVATED_FRACTION} of the pool's maximum and a
+ * collection usage threshold at {@link #CRITICAL_FRACTION}. Crossing the first
+ * may still be garbage; still being above the second right after a
+ * collection is live data. Thresholds another component of the host already
+ * set are left alone and reported all the same.
+ *
+ * <p>When the last listener unregisters (the plugin is unloaded), the JMX
+ * listener is removed, so the platform MXBean keeps no reference into the
+ * plugin, and every threshold set here is reset to 0 (disabled) unless the
+ * host has changed it meanwhile.
+ *
+ * <p>Listeners are called on the JMX notification thread and must not block.
+ */
+@Slf4j
+final class PdfMemoryGuard {
+
+    /** How close to running out the heap is. */
+    enum Pressure {
+        /** Tenured occupancy crossed the usage threshold; may still be collectable. */
+        ELEVATED,
+        /** Tenured occupancy is above the collection threshold even after a GC. */
+        CRITICAL
+    }
+
+    /** Usage threshold, as a fraction of the pool's maximum. */
+    static final double ELEVATED_FRACTION = 0.85;
+
+    /** Collection usage threshold, as a fraction of the pool's maximum. */
+    static final double CRITICAL_FRACTION = 0.75;
+
+    private static final PdfMemoryGuard INSTANCE = new PdfMemoryGuard();
+
+    /** A threshold set by {@link #install()}, to be reset by {@link #uninstall()}. */
+    private record Threshold(MemoryPoolMXBean pool, boolean collection, long value) {}
+
+    private final List<Consumer<Pressure>> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final List<Threshold> thresholds = new ArrayList<>();
+    private NotificationListener notificationListener;
+
+    private PdfMemoryGuard() {}
+
+    static PdfMemoryGuard getInstance() {
+        return INSTANCE;
+    }
+
+    /** Call {@code listener} whenever heap pressure is reported. */
+    synchronized void register(Consumer<Pressure> listener) {
+        if (listeners.isEmpty()) install();
+        listeners.add(listener);
+    }
+
+    /** Stop calling {@code listener}; the last one to go uninstalls the guard. */
+    synchronized void unregister(Consumer<Pressure> listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) uninstall();
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /** Must be called with this held. */
+    private void install() {
+        boolean watching = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) continue;
+            long max = pool.getUsage().getMax();
+            if (max <= 0) continue;
+            try {
+                if (pool.getUsageThreshold() == 0) {
+                    long value = (long) (max * ELEVATED_FRACTION);
+                    pool.setUsageThreshold(value);
+                    thresholds.add(new Threshold(pool, false, value));
+                }
+                if (pool.isCollectionUsageThresholdSupported() && pool.getCollectionUsageThreshold() == 0) {
+                    long value = (long) (max * CRITICAL_FRACTION);
+                    pool.setCollectionUsageThreshold(value);
+                    thresholds.add(new Threshold(pool, true, value));
+                }
+                watching = true;
+                log.debug("Watching heap pool {} (max {} MB)", pool.getName(), max >> 20);
+            } catch (RuntimeException e) {
+                log.debug("Cannot set thresholds on heap pool {}: {}", pool.getName(), e.getMessage());
+            }
+        }
+        if (!watching) {
+            log.debug("No heap pool supports usage thresholds; memory pressure is not watched");
+            return;
+        }
+        notificationListener = this::onNotification;
+        emitter().addNotificationListener(notificationListener, null, null);
+    }
+
+    /** Undo {@link #install()}. Must be called with this held. */
+    private void uninstall() {
+        if (notificationListener != null) {
+            try {
+                emitter().removeNotificationListener(notificationListener);
+            } catch (ListenerNotFoundException e) {
+                log.debug("Memory notification listener already removed");
+            }
+            notificationListener = null;
+        }
+        for (Threshold t : thresholds) {
+            try {
+                // Leave thresholds the host has changed since alone
+                if (t.collection() && t.pool().getCollectionUsageThreshold() == t.value()) {
+                    t.pool().setCollectionUsageThreshold(0);
+                } else if (!t.collection() && t.pool().getUsageThreshold() == t.value()) {
+                    t.pool().setUsageThreshold(0);
+                }
+            } catch (RuntimeException e) {
+                log.debug("Cannot reset threshold on heap pool {}: {}", t.pool().getName(), e.getMessage());
+            }
+        }
+        thresholds.clear();
+    }
+
+    private static NotificationEmitter emitter() {
+        return (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        Pressure pressure = switch (notification.getType()) {
+            case MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED            -> Pressure.ELEVATED;
+            case MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED -> Pressure.CRITICAL;
+            default -> null;
+        };
+        if (pressure == null) return;
+
+        MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        MemoryUsage usage = info.getUsage();
+        log.info("Heap pressure ({}): {} at {} of {} MB", pressure, info.getPoolName(),
+                usage.getUsed() >> 20, usage.getMax() >> 20);
+        for (Consumer<Pressure> listener : listeners) {
+            try {
+                listener.accept(pressure);
+            } catch (RuntimeException e) {
+                log.warn("Memory pressure listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfRenderBackend;
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * LRU of open documents that are not on screen: documents switched away from
+ * or closed with the pane, and neighbouring files opened ahead of time by
+ * directory warm-up. Selecting one adopts its open render pool instead of
+ * parsing the file again.
+ *
+ * <p>File-backed entries are keyed by their file, downloaded ones by content
+ * fingerprint. Copies of one file share cached pages through the fingerprint
+ * but each gets its own renderer, and a file is found again without hashing it.
+ *
+ * <p>The LRU is bounded by entry count and by an estimate of the heap the
+ * parsed documents hold, and documents idle for longer than
+ * {@link #IDLE_TIMEOUT_MS} are closed by a sweeper thread that runs while
+ * the LRU is not empty. A file-backed entry remembers the size and
+ * modification time of its file and is discarded if either has changed by
+ * the time it is taken. Evicted pools are closed on a virtual thread.
+ */
+@Slf4j
+final class PdfOpenDocuments {
+
+    /** Closed after this long without being selected. */
+    static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    private static final long SWEEP_INTERVAL_MS = 30 * 1000;
+
+    /**
+     * Rough heap per open renderer beyond an in-memory source: xref, page
+     * tree, fonts and the object cache of a typical document.
+     */
+    private static final long BYTES_PER_INSTANCE = 16L * 1024 * 1024;
+
+    /** Size and modification time of a file, to notice that it has changed. */
+    record Stamp(long size, FileTime modified) {
+
+        /** Stamp of {@code file} now, or null if it cannot be read. */
+        static Stamp of(Path file) {
+            try {
+                return new Stamp(Files.size(file), Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * An open document that is not on screen.
+     *
+     * @param file  local file the document was opened from, or null for downloaded items
+     * @param stamp {@code file}'s stamp when it was opened; null with {@code file}
+     */
+    record Entry(String docId, Path file, Stamp stamp, PdfRenderPool pool,
+                 PdfDocumentInfo info, PdfRenderBackend.PageSize firstPageSize) {
+
+        Object key() {
+            return keyOf(docId, file);
+        }
+
+        long estimatedBytes() {
+            long bytes = (long) pool.size() * BYTES_PER_INSTANCE;
+            PdfSource source = pool.source();
+            if (!source.isFile()) {
+                try {
+                    bytes += source.length();
+                } catch (IOException ignored) {
+                    // in-memory sources do not throw
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private record Held(Entry entry, long since) {}
+
+    private final int  maxDocuments;
+    private final long maxBytes;
+
+    // Guarded by this
+    private final LinkedHashMap<Object, Held> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean sweeping;
+
+    /**
+     * @param maxDocuments upper bound on held documents (at least 1)
+     * @param maxBytes     upper bound on their estimated heap
+     */
+    PdfOpenDocuments(int maxDocuments, long maxBytes) {
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.maxBytes     = maxBytes;
+    }
+
+    /** True if a document opened from {@code file} is held, so warm-up can skip it. */
+    synchronized boolean containsFile(Path file) {
+        return entries.containsKey(keyOf(null, file));
+    }
+
+    /**
+     * Hold {@code entry}, replacing one with the same key and evicting
+     * the least recently used beyond the count and heap bounds. Idle extra
+     * renderers of its pool are closed; one is enough to reopen the document.
+     */
+    void put(Entry entry) {
+        entry.pool().trimIdle(1);
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Held previous = entries.put(entry.key(), new Held(entry, System.currentTimeMillis()));
+            if (previous != null && previous.entry().pool() != entry.pool()) evicted.add(previous.entry());
+            long bytes = 0;
+            for (Held held : entries.values()) bytes += held.entry().estimatedBytes();
+            for (Iterator<Held> it = entries.values().iterator();
+                 it.hasNext() && (entries.size() > maxDocuments || bytes > maxBytes); ) {
+                Entry eldest = it.next().entry();
+                if (eldest == entry) break; // always hold the newest
+                bytes -= eldest.estimatedBytes();
+                evicted.add(eldest);
+                it.remove();
+            }
+            if (!sweeping) {
+                sweeping = true;
+                Thread.ofVirtual().name("pdf-open-documents").start(this::sweep);
+            }
+        }
+        close(evicted, "evicted");
+    }
+
+    /**
+     * Remove and return the document opened from {@code file}, or for a
+     * downloaded document ({@code file} null) the one with fingerprint
+     * {@code docId}; the caller owns its pool.
+     *
+     * @return null if there is none or its file has changed since it was opened
+     */
+    Entry take(String docId, Path file) {
+        Held held;
+        synchronized (this) {
+            held = entries.remove(keyOf(docId, file));
+        }
+        if (held == null) return null;
+        Entry entry = held.entry();
+        if (entry.file() == null || entry.stamp().equals(Stamp.of(entry.file()))) return entry;
+        close(List.of(entry), "changed on disk");
+        return null;
+    }
+
+    /** Close every held document. */
+    void clear() {
+        clear("cleared");
+    }
+
+    /**
+     * Close every held document, logging {@code reason}.
+     *
+     * @return number of documents closed
+     */
+    int clear(String reason) {
+        List<Entry> all;
+        synchronized (this) {
+            all = entries.values().stream().map(Held::entry).toList();
+            entries.clear();
+        }
+        close(all, reason);
+        return all.size();
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private static Object keyOf(String docId, Path file) {
+        return file != null ? file.toAbsolutePath().normalize() : docId;
+    }
+
+    /** Close idle documents every {@link #SWEEP_INTERVAL_MS} until none are held. */
+    private void sweep() {
+        while (true) {
+            try {
+                Thread.sleep(SWEEP_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<Entry> idle = new ArrayList<>();
+            boolean done;
+            synchronized (this) {
+                long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+                for (Iterator<Held> it = entries.values().iterator(); it.hasNext(); ) {
+                    Held held = it.next();
+                    if (held.since() < cutoff) {
+                        idle.add(held.entry());
+                        it.remove();
+                    }
+                }
+                done = entries.isEmpty();
+                if (done) sweeping = false;
+            }
+            close(idle, "idle");
+            if (done) return;
+        }
+    }
+
+    private static void close(List<Entry> entries, String reason) {
+        if (entries.isEmpty()) return;
+        Thread.ofVirtual().name("pdf-close").start(() -> {
+            for (Entry entry : entries) {
+                log.debug("Closing open document {} ({})", entry.docId(), reason);
+                entry.pool().close();
+            }
+        });
+    }
+}
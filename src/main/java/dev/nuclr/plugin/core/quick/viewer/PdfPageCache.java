@@ -1,42 +1,265 @@
 package dev.nuclr.plugin.core.quick.viewer;
 
+import dev.nuclr.plugin.core.quick.viewer.PdfSettings.CacheFormat;
+
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Thread-safe LRU cache for rendered PDF page images.
- * Key: (documentId, pageIndex, dpi).
+ * Key: (documentId, pageIndex, dpi), plus the tile position for zoomed tiles.
+ *
+ * <p>Bounded by the total size of the cached rasters rather than the number of
+ * pages, so a few A0 posters and dozens of letter pages cost the same budget.
+ * An optional entry limit still applies when configured.
+ *
+ * <p>With a {@link CacheFormat#COMPACT} or {@link CacheFormat#COMPRESSED}
+ * format, 32-bit RGB rasters are stored as 24-bit BGR, or as 8-bit grey
+ * when every pixel is grey, which most text pages are; compressed entries
+ * are deflated as well and inflated into a new image on every hit. Both are
+ * lossless. Conversion happens outside the cache lock, on the caller's thread.
  */
 public final class PdfPageCache {
 
-    public record Key(String documentId, int pageIndex, float dpi) {}
+    /** {@code tileColumn} and {@code tileRow} are -1 for a whole page. */
+    public record Key(String documentId, int pageIndex, float dpi, int tileColumn, int tileRow) {
 
-    private final LinkedHashMap<Key, BufferedImage> cache;
+        public Key(String documentId, int pageIndex, float dpi) {
+            this(documentId, pageIndex, dpi, -1, -1);
+        }
+    }
 
-    public PdfPageCache(int maxEntries) {
-        int max = maxEntries;
-        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
-                return size() > max;
-            }
-        };
+    /** Deflated samples of a {@code TYPE_BYTE_GRAY} or {@code TYPE_3BYTE_BGR} raster. */
+    private record Packed(int width, int height, int type, byte[] data) {}
+
+    /** Exactly one of {@code image} and {@code packed} is set. */
+    private record Entry(BufferedImage image, Packed packed, long bytes) {}
+
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private final int  maxEntries;
+    private final CacheFormat format;
+    private long totalBytes;
+
+    /**
+     * @param maxBytes   budget for the sum of all cached rasters
+     * @param maxEntries additional page limit; 0 or less for none
+     */
+    public PdfPageCache(long maxBytes, int maxEntries) {
+        this(maxBytes, maxEntries, CacheFormat.RGB);
+    }
+
+    /**
+     * @param maxBytes   budget for the sum of all cached rasters
+     * @param maxEntries additional page limit; 0 or less for none
+     * @param format     how rasters are stored
+     */
+    public PdfPageCache(long maxBytes, int maxEntries, CacheFormat format) {
+        this.maxBytes   = maxBytes;
+        this.maxEntries = maxEntries;
+        this.format     = format;
     }
 
-    public synchronized BufferedImage get(Key key) {
-        return cache.get(key);
+    public BufferedImage get(Key key) {
+        Entry e;
+        synchronized (this) {
+            e = cache.get(key);
+        }
+        if (e == null) return null;
+        return e.image() != null ? e.image() : inflate(e.packed());
     }
 
-    public synchronized void put(Key key, BufferedImage image) {
-        cache.put(key, image);
+    /** True if {@code key} is cached; unlike {@link #get} it never decompresses. */
+    public synchronized boolean contains(Key key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Insert an image, then evict least-recently-used pages until the cache is
+     * back under budget. The newest page is always kept, even if it alone
+     * exceeds the budget, so the page on screen is never re-rendered.
+     */
+    public void put(Key key, BufferedImage image) {
+        Entry entry = encode(image);
+        synchronized (this) {
+            Entry old = cache.put(key, entry);
+            if (old != null) totalBytes -= old.bytes();
+            totalBytes += entry.bytes();
+
+            Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+            while (cache.size() > 1 && overBudget()) {
+                Map.Entry<Key, Entry> eldest = it.next();
+                totalBytes -= eldest.getValue().bytes();
+                it.remove();
+            }
+        }
     }
 
     public synchronized void invalidate(String documentId) {
-        cache.keySet().removeIf(k -> k.documentId().equals(documentId));
+        Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().documentId().equals(documentId)) {
+                totalBytes -= e.getValue().bytes();
+                it.remove();
+            }
+        }
     }
 
     public synchronized void clear() {
         cache.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Evict least-recently-used entries until at most {@code bytes} remain,
+     * e.g. under heap pressure. Like {@link #put}, the most recently used
+     * entry is kept.
+     *
+     * @return number of entries evicted
+     */
+    public synchronized int trimTo(long bytes) {
+        int evicted = 0;
+        Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+        while (cache.size() > 1 && totalBytes > bytes) {
+            totalBytes -= it.next().getValue().bytes();
+            it.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /** Total raster bytes currently held. */
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    /** Raster memory of an image, computed from its DataBuffer. */
+    static long weightOf(BufferedImage image) {
+        DataBuffer buf = image.getRaster().getDataBuffer();
+        long bytesPerElement = DataBuffer.getDataTypeSize(buf.getDataType()) / 8;
+        return (long) buf.getSize() * buf.getNumBanks() * Math.max(1, bytesPerElement);
+    }
+
+    /**
+     * {@code image} as an opaque {@code TYPE_BYTE_GRAY} image if every pixel
+     * is grey, otherwise as {@code TYPE_3BYTE_BGR}, sample for sample.
+     * Images that are not {@code TYPE_INT_RGB} are returned unchanged.
+     */
+    static BufferedImage compact(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) return image;
+        int w = image.getWidth(), h = image.getHeight();
+        Raster src = image.getRaster();
+        int[] row = new int[w];
+        boolean grey = isGrey(image);
+
+        BufferedImage out = new BufferedImage(w, h,
+                grey ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+        WritableRaster dst = out.getRaster();
+        byte[] samples = new byte[grey ? w : w * 3];
+        for (int y = 0; y < h; y++) {
+            src.getDataElements(0, y, w, 1, row);
+            for (int x = 0; x < w; x++) {
+                int p = row[x];
+                if (grey) {
+                    samples[x] = (byte) p;
+                } else {
+                    // Data elements are in band order R, G, B whatever the byte layout
+                    samples[x * 3]     = (byte) (p >> 16);
+                    samples[x * 3 + 1] = (byte) (p >> 8);
+                    samples[x * 3 + 2] = (byte) p;
+                }
+            }
+            dst.setDataElements(0, y, w, 1, samples);
+        }
+        return out;
+    }
+
+    /**
+     * True if {@code image} has no colour: a grey image, or a
+     * {@code TYPE_INT_RGB} image whose pixels all have equal components.
+     * Stops at the first coloured pixel.
+     */
+    static boolean isGrey(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_USHORT_GRAY) return true;
+        if (type != BufferedImage.TYPE_INT_RGB) return false;
+        int w = image.getWidth(), h = image.getHeight();
+        Raster src = image.getRaster();
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            src.getDataElements(0, y, w, 1, row);
+            for (int p : row) {
+                int b = p & 0xff;
+                if (((p >> 16) & 0xff) != b || ((p >> 8) & 0xff) != b) return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private Entry encode(BufferedImage image) {
+        if (format == CacheFormat.RGB) return new Entry(image, null, weightOf(image));
+        BufferedImage compact = compact(image);
+        int type = compact.getType();
+        if (format == CacheFormat.COMPACT
+                || (type != BufferedImage.TYPE_BYTE_GRAY && type != BufferedImage.TYPE_3BYTE_BGR)) {
+            return new Entry(compact, null, weightOf(compact));
+        }
+        Packed packed = deflate(compact);
+        return new Entry(null, packed, packed.data().length);
+    }
+
+    private static Packed deflate(BufferedImage image) {
+        int w = image.getWidth(), h = image.getHeight();
+        Raster raster = image.getRaster();
+        byte[] row = new byte[w * raster.getNumBands()];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater, row.length)) {
+            for (int y = 0; y < h; y++) {
+                raster.getDataElements(0, y, w, 1, row);
+                out.write(row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a ByteArrayOutputStream
+        } finally {
+            deflater.end();
+        }
+        return new Packed(w, h, image.getType(), bytes.toByteArray());
+    }
+
+    private static BufferedImage inflate(Packed packed) {
+        BufferedImage image = new BufferedImage(packed.width(), packed.height(), packed.type());
+        WritableRaster raster = image.getRaster();
+        byte[] row = new byte[packed.width() * raster.getNumBands()];
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(packed.data()))) {
+            for (int y = 0; y < packed.height(); y++) {
+                in.readNBytes(row, 0, row.length);
+                raster.setDataElements(0, y, packed.width(), 1, row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a ByteArrayInputStream
+        }
+        return image;
+    }
+
+    private boolean overBudget() {
+        return totalBytes > maxBytes || (maxEntries > 0 && cache.size() > maxEntries);
     }
 }
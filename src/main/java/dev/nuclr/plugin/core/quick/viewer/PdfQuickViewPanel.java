@@ -2,11 +2,19 @@ package dev.nuclr.plugin.core.quick.viewer;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import dev.nuclr.plugin.PluginTheme;
@@ -29,9 +37,41 @@ public class PdfQuickViewPanel extends JPanel {
 
     private PdfDocumentInfo currentInfo;
     private BufferedImage   currentImage;
+    /** Logical pixels per image pixel; above 1 while a low-DPI preview is shown. */
+    private double          currentDisplayScale = 1.0;
+    private float           currentDpi;
+    private boolean         currentPreview;
     private int             currentPageIndex;
     private String          statusMessage = "No PDF selected";
 
+    /** 1 = fit to the canvas; above 1 the page is shown in tiles rendered at a higher DPI. */
+    private double          zoom = 1.0;
+    /** Point of the page (as a fraction of its size) shown at the canvas centre while zoomed. */
+    private double          viewCenterX = 0.5;
+    private double          viewCenterY = 0.5;
+    private Point           dragOrigin;
+
+    /** Tiles received for {@link #tilePageIndex} at {@link #tileDpi}, by tile origin. */
+    private final Map<Point, PdfRenderService.Tile> tiles = new HashMap<>();
+    private int             tilePageIndex = -1;
+    private float           tileDpi;
+    private Dimension       tilePageSize;
+
+    /** Thumbnails received for the document in the sidebar, trimmed to the pages near view. */
+    private final Map<Integer, BufferedImage> thumbnails = new HashMap<>();
+    /** Document the sidebar model was built for. */
+    private PdfDocumentInfo thumbnailInfo;
+
+    private static final int    RESIZE_DEBOUNCE_MS = 200;
+    private static final int    TILE_DEBOUNCE_MS   = 100;
+    private static final double MAX_ZOOM           = 16.0;
+    private static final double ZOOM_STEP          = 1.25;
+
+    private static final int    THUMB_DEBOUNCE_MS  = 100;
+    private static final int    THUMB_WIDTH        = 96;
+    private static final int    THUMB_HEIGHT       = 124;
+    private static final int    THUMB_CELL_PAD     = 6;
+
     // ---------------------------------------------------------------- services
 
     private final PdfRenderService renderService;
@@ -43,8 +83,19 @@ public class PdfQuickViewPanel extends JPanel {
     private final JButton   nextButton;
     private final JLabel    pageLabel;
     private final JCheckBox overlayCheck;
+    private final JCheckBox thumbnailCheck;
     private final JPanel    toolbar;
     private final PageCanvas pageCanvas;
+    private final PageListModel  thumbnailModel;
+    private final JList<Integer> thumbnailList;
+    private final JScrollPane    thumbnailScroll;
+
+    /** Debounces re-renders while the canvas is being resized (auto DPI). */
+    private final Timer     resizeTimer;
+    /** Debounces tile requests while zooming and panning. */
+    private final Timer     tileTimer;
+    /** Debounces thumbnail requests while the sidebar scrolls. */
+    private final Timer     thumbnailTimer;
 
     private Color canvasBackground = Color.BLACK;
     private Color toolbarBackground = new Color(0x2B2B2B);
@@ -65,15 +116,20 @@ public class PdfQuickViewPanel extends JPanel {
         nextButton  = new JButton("\u25B6");  // ▶
         pageLabel   = new JLabel("", SwingConstants.CENTER);
         overlayCheck = new JCheckBox("Info", settings.isShowInfoOverlay());
+        thumbnailCheck = new JCheckBox("Pages", settings.isShowThumbnails());
 
         prevButton.setFocusable(false);
         nextButton.setFocusable(false);
         overlayCheck.setFocusable(false);
+        thumbnailCheck.setFocusable(false);
 
         pageLabel.setForeground(secondaryForeground);
         overlayCheck.setForeground(secondaryForeground);
         overlayCheck.setOpaque(false);
         overlayCheck.setBorderPainted(false);
+        thumbnailCheck.setForeground(secondaryForeground);
+        thumbnailCheck.setOpaque(false);
+        thumbnailCheck.setBorderPainted(false);
 
         toolbar = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 4));
         toolbar.setBackground(toolbarBackground);
@@ -82,12 +138,38 @@ public class PdfQuickViewPanel extends JPanel {
         toolbar.add(nextButton);
         toolbar.add(Box.createHorizontalStrut(16));
         toolbar.add(overlayCheck);
+        toolbar.add(thumbnailCheck);
         add(toolbar, BorderLayout.SOUTH);
 
+        // ---------- thumbnail sidebar
+        thumbnailModel = new PageListModel();
+        thumbnailList  = new JList<>(thumbnailModel);
+        thumbnailList.setCellRenderer(new ThumbnailCell());
+        thumbnailList.setFixedCellWidth(THUMB_WIDTH + THUMB_CELL_PAD * 2);
+        thumbnailList.setFixedCellHeight(THUMB_HEIGHT + THUMB_CELL_PAD * 2);
+        thumbnailList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        thumbnailList.setFocusable(false);
+        thumbnailList.setBackground(toolbarBackground);
+
+        thumbnailScroll = new JScrollPane(thumbnailList,
+                ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        thumbnailScroll.setBorder(BorderFactory.createEmptyBorder());
+        thumbnailScroll.getVerticalScrollBar().setUnitIncrement(THUMB_HEIGHT / 4);
+        thumbnailScroll.setVisible(false);
+        add(thumbnailScroll, BorderLayout.WEST);
+
         // ---------- canvas
         pageCanvas = new PageCanvas();
         add(pageCanvas, BorderLayout.CENTER);
 
+        resizeTimer = new Timer(RESIZE_DEBOUNCE_MS, e -> rerenderForViewport());
+        resizeTimer.setRepeats(false);
+        tileTimer = new Timer(TILE_DEBOUNCE_MS, e -> requestTiles());
+        tileTimer.setRepeats(false);
+        thumbnailTimer = new Timer(THUMB_DEBOUNCE_MS, e -> requestVisibleThumbnails());
+        thumbnailTimer.setRepeats(false);
+
         // ---------- listeners
         prevButton.addActionListener(e -> navigatePage(-1));
         nextButton.addActionListener(e -> navigatePage(1));
@@ -95,6 +177,57 @@ public class PdfQuickViewPanel extends JPanel {
             settings.setShowInfoOverlay(overlayCheck.isSelected());
             pageCanvas.repaint();
         });
+        thumbnailCheck.addActionListener(e -> {
+            settings.setShowThumbnails(thumbnailCheck.isSelected());
+            updateSidebar();
+        });
+        thumbnailScroll.getViewport().addChangeListener(e -> thumbnailTimer.restart());
+        thumbnailList.addListSelectionListener(e -> {
+            int selected = thumbnailList.getSelectedIndex();
+            if (!e.getValueIsAdjusting() && selected >= 0) goToPage(selected);
+        });
+
+        pageCanvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateViewport();
+                if (settings.isAutoDpi()) resizeTimer.restart();
+                if (zoom > 1.0) tileTimer.restart();
+            }
+        });
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragOrigin = e.getPoint();
+                requestFocusInWindow();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragOrigin = null;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragOrigin == null || zoom <= 1.0) return;
+                panBy(e.getX() - dragOrigin.x, e.getY() - dragOrigin.y);
+                dragOrigin = e.getPoint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) zoomAt(zoom > 1.0 ? 1.0 / zoom : 2.0, e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (e.isControlDown()) zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        pageCanvas.addMouseListener(mouse);
+        pageCanvas.addMouseMotionListener(mouse);
+        pageCanvas.addMouseWheelListener(mouse);
 
         addKeyListener(new KeyAdapter() {
             @Override
@@ -104,6 +237,9 @@ public class PdfQuickViewPanel extends JPanel {
                 if (code == KeyEvent.VK_RIGHT || code == KeyEvent.VK_DOWN || code == KeyEvent.VK_PAGE_DOWN) navigatePage(+1);
                 if (code == KeyEvent.VK_HOME) goToPage(0);
                 if (code == KeyEvent.VK_END && currentInfo != null) goToPage(currentInfo.pageCount() - 1);
+                if (code == KeyEvent.VK_PLUS  || code == KeyEvent.VK_EQUALS || code == KeyEvent.VK_ADD)      zoomAtCenter(ZOOM_STEP);
+                if (code == KeyEvent.VK_MINUS || code == KeyEvent.VK_SUBTRACT)                              zoomAtCenter(1.0 / ZOOM_STEP);
+                if (code == KeyEvent.VK_0     || code == KeyEvent.VK_NUMPAD0)                               zoomAtCenter(1.0 / zoom);
             }
         });
 
@@ -130,11 +266,14 @@ public class PdfQuickViewPanel extends JPanel {
         toolbar.setBackground(toolbarBackground);
         pageLabel.setForeground(secondaryForeground);
         overlayCheck.setForeground(secondaryForeground);
+        thumbnailCheck.setForeground(secondaryForeground);
+        thumbnailList.setBackground(toolbarBackground);
         pageCanvas.setBackground(canvasBackground);
 
         Font defaultFont = theme.defaultFont();
         pageLabel.setFont(defaultFont);
         overlayCheck.setFont(defaultFont);
+        thumbnailCheck.setFont(defaultFont);
         prevButton.setFont(defaultFont);
         nextButton.setFont(defaultFont);
 
@@ -151,42 +290,79 @@ public class PdfQuickViewPanel extends JPanel {
         if (cancelled.get()) return false;
         requestFocusInWindow();
         setLoading();
-        renderService.loadDocument(item, this::onRenderResult, this::onError);
+        updateViewport();
+        renderService.loadDocument(item, this::onDocumentInfo, this::onRenderResult, this::onError);
         return true;
     }
 
     /** Reset the panel to blank state, cancelling any in-flight work. */
     public void clear() {
         renderService.close();
+        resetZoom();
         currentInfo      = null;
         currentImage     = null;
         currentPageIndex = 0;
         statusMessage    = "No PDF selected";
+        pageCanvas.dropScaledImage();
         pageCanvas.repaint();
+        updateSidebar();
         updateNavigation();
     }
 
+    /**
+     * Release everything, including documents kept open for reuse.
+     * Called when the plugin is unloaded.
+     */
+    public void dispose() {
+        clear();
+        renderService.shutdown();
+    }
+
     // ============================================================ private helpers
 
     private void setLoading() {
         // Called from EDT
+        resetZoom();
         statusMessage    = "Loading\u2026";
         currentImage     = null;
         currentInfo      = null;
         currentPageIndex = 0;
         pageCanvas.repaint();
+        // The sidebar stays as it is until the new document's info says whether it needs one:
+        // hiding it here would resize the canvas twice and target the first page at the wrong width
+        thumbnails.clear();
+        thumbnailList.repaint();
+        updateNavigation();
+    }
+
+    /**
+     * Invoked on EDT by the render service as soon as the document is open,
+     * so page count, navigation and the sidebar appear while the first page
+     * is still rendering; and again when title and author have been read.
+     */
+    private void onDocumentInfo(PdfDocumentInfo info) {
+        assert SwingUtilities.isEventDispatchThread();
+        if (currentInfo == null && currentImage == null) statusMessage = "Rendering\u2026";
+        adoptInfo(info);
+        pageCanvas.repaint();
+        updateSidebar();
         updateNavigation();
     }
 
     /** Invoked on EDT by the render service. */
     private void onRenderResult(PdfRenderService.RenderResult result) {
         assert SwingUtilities.isEventDispatchThread();
-        currentInfo      = result.info();
+        adoptInfo(result.info());
         currentImage     = result.image();
+        currentDisplayScale = result.displayScale();
+        currentDpi       = result.dpi();
+        currentPreview   = result.preview();
         currentPageIndex = result.pageIndex();
         statusMessage    = null;
         pageCanvas.repaint();
+        updateSidebar();
         updateNavigation();
+        if (zoom > 1.0 && !currentPreview) tileTimer.restart();
     }
 
     /** Invoked on EDT by the render service. */
@@ -195,9 +371,19 @@ public class PdfQuickViewPanel extends JPanel {
         statusMessage = msg;
         currentImage  = null;
         pageCanvas.repaint();
+        updateSidebar(); // hides the sidebar kept through a load that failed
         updateNavigation();
     }
 
+    /**
+     * Make {@code info} current. A metadata update of the open document is a
+     * new object too, but must not make the sidebar drop its thumbnails.
+     */
+    private void adoptInfo(PdfDocumentInfo info) {
+        if (currentInfo != null && thumbnailInfo == currentInfo) thumbnailInfo = info;
+        currentInfo = info;
+    }
+
     private void navigatePage(int delta) {
         if (currentInfo == null) return;
         goToPage(currentPageIndex + delta);
@@ -207,13 +393,216 @@ public class PdfQuickViewPanel extends JPanel {
         if (currentInfo == null) return;
         int bounded = Math.max(0, Math.min(pageIndex, currentInfo.pageCount() - 1));
         if (bounded == currentPageIndex) return;
+        resetZoom();
         currentPageIndex = bounded;
         statusMessage    = "Loading\u2026";
         pageCanvas.repaint();
+        syncThumbnailSelection();
         updateNavigation();
         renderService.renderPage(bounded, this::onRenderResult, this::onError);
     }
 
+    /** Tell the render service how large pages are drawn, in logical and device pixels. */
+    private void updateViewport() {
+        renderService.setViewport(pageCanvas.getWidth(), pageCanvas.getHeight(), deviceScale());
+    }
+
+    /** Re-render the page on screen for the new canvas size; the old image stays up meanwhile. */
+    private void rerenderForViewport() {
+        if (currentInfo == null || currentImage == null) return;
+        renderService.renderPage(currentPageIndex, true, this::onRenderResult, this::onError);
+    }
+
+    // ---- zoom and tiles
+
+    private void resetZoom() {
+        zoom        = 1.0;
+        viewCenterX = 0.5;
+        viewCenterY = 0.5;
+        tileTimer.stop();
+        tiles.clear();
+        tilePageIndex = -1;
+    }
+
+    private void zoomAtCenter(double factor) {
+        zoomAt(factor, pageCanvas.getWidth() / 2.0, pageCanvas.getHeight() / 2.0);
+    }
+
+    /** Change the zoom by {@code factor}, keeping the page point under (mx, my) in place. */
+    private void zoomAt(double factor, double mx, double my) {
+        if (currentImage == null || statusMessage != null) return;
+        Rectangle2D before = pageRect(currentImage);
+        if (before == null) return;
+        double newZoom = Math.max(1.0, Math.min(MAX_ZOOM, zoom * factor));
+        if (newZoom == zoom) return;
+
+        double fx = (mx - before.getX()) / before.getWidth();
+        double fy = (my - before.getY()) / before.getHeight();
+        double w  = before.getWidth()  / zoom * newZoom;
+        double h  = before.getHeight() / zoom * newZoom;
+        zoom        = newZoom;
+        viewCenterX = clampCenter(fx + (pageCanvas.getWidth()  / 2.0 - mx) / w, pageCanvas.getWidth(),  w);
+        viewCenterY = clampCenter(fy + (pageCanvas.getHeight() / 2.0 - my) / h, pageCanvas.getHeight(), h);
+        onViewChanged();
+    }
+
+    private void panBy(int dx, int dy) {
+        Rectangle2D page = pageRect(currentImage);
+        if (page == null) return;
+        double cx = (pageCanvas.getWidth()  / 2.0 - page.getX()) / page.getWidth();
+        double cy = (pageCanvas.getHeight() / 2.0 - page.getY()) / page.getHeight();
+        viewCenterX = clampCenter(cx - dx / page.getWidth(),  pageCanvas.getWidth(),  page.getWidth());
+        viewCenterY = clampCenter(cy - dy / page.getHeight(), pageCanvas.getHeight(), page.getHeight());
+        onViewChanged();
+    }
+
+    private void onViewChanged() {
+        pageCanvas.repaint();
+        if (zoom > 1.0) {
+            tileTimer.restart();
+        } else {
+            tiles.clear();
+            tilePageIndex = -1;
+        }
+    }
+
+    /**
+     * Ask for the tiles covering the canvas at the resolution the zoomed page
+     * is drawn at. Nothing is requested while the page image is already at
+     * least that sharp, a preview is showing, or the backend cannot render
+     * tiles (the page image is then drawn scaled up).
+     */
+    private void requestTiles() {
+        if (zoom <= 1.0 || currentImage == null || currentPreview || statusMessage != null) return;
+        if (!renderService.canRenderTiles()) return;
+        Rectangle2D page = pageRect(currentImage);
+        if (page == null) return;
+
+        double devicePixels = page.getWidth() * deviceScale();
+        float dpi = Math.min(PdfRenderService.MAX_TILE_DPI,
+                Math.round(currentDpi * devicePixels / currentImage.getWidth()));
+        if (dpi <= currentDpi) return;
+
+        Dimension pageSize = new Dimension(
+                (int) Math.round(currentImage.getWidth()  * (double) dpi / currentDpi),
+                (int) Math.round(currentImage.getHeight() * (double) dpi / currentDpi));
+        if (dpi != tileDpi || currentPageIndex != tilePageIndex) {
+            tiles.clear();
+            tileDpi       = dpi;
+            tilePageIndex = currentPageIndex;
+            tilePageSize  = pageSize;
+        }
+
+        double toTile = pageSize.width / page.getWidth();
+        Rectangle visible = new Rectangle(
+                (int) Math.floor(-page.getX() * toTile),
+                (int) Math.floor(-page.getY() * toTile),
+                (int) Math.ceil(pageCanvas.getWidth()  * toTile),
+                (int) Math.ceil(pageCanvas.getHeight() * toTile));
+        tiles.values().removeIf(t -> !t.bounds().intersects(visible));
+        renderService.renderTiles(currentPageIndex, dpi, visible, pageSize, this::onTile);
+    }
+
+    /** Invoked on EDT by the render service. */
+    private void onTile(PdfRenderService.Tile tile) {
+        if (tile.pageIndex() != tilePageIndex || tile.dpi() != tileDpi || zoom <= 1.0) return;
+        tiles.put(tile.bounds().getLocation(), tile);
+        pageCanvas.repaint();
+    }
+
+    /** Where the page is drawn at zoom 1: fitted inside the canvas, never above its logical size. */
+    private Rectangle2D fitRect(BufferedImage img) {
+        int panelW = pageCanvas.getWidth();
+        int panelH = pageCanvas.getHeight();
+        if (panelW <= 0 || panelH <= 0) return null;
+
+        // Logical size: a low-DPI preview is laid out at the final page size
+        double imgW = img.getWidth()  * currentDisplayScale;
+        double imgH = img.getHeight() * currentDisplayScale;
+        if (imgW <= 0 || imgH <= 0) return null;
+
+        double scale = Math.min(1.0, Math.min(panelW / imgW, panelH / imgH));
+        int drawW = (int) Math.round(imgW * scale);
+        int drawH = (int) Math.round(imgH * scale);
+        return new Rectangle((panelW - drawW) / 2, (panelH - drawH) / 2, drawW, drawH);
+    }
+
+    /** Where the page is drawn at the current zoom and pan position. */
+    private Rectangle2D pageRect(BufferedImage img) {
+        Rectangle2D fit = fitRect(img);
+        if (fit == null || zoom <= 1.0) return fit;
+        double w = fit.getWidth()  * zoom;
+        double h = fit.getHeight() * zoom;
+        double cx = clampCenter(viewCenterX, pageCanvas.getWidth(),  w);
+        double cy = clampCenter(viewCenterY, pageCanvas.getHeight(), h);
+        return new Rectangle2D.Double(
+                pageCanvas.getWidth()  / 2.0 - cx * w,
+                pageCanvas.getHeight() / 2.0 - cy * h,
+                w, h);
+    }
+
+    /** Keep the page covering the canvas along an axis where it is larger, centred where it is not. */
+    private static double clampCenter(double center, double view, double size) {
+        if (size <= view) return 0.5;
+        double half = view / 2.0 / size;
+        return Math.max(half, Math.min(1.0 - half, center));
+    }
+
+    private double deviceScale() {
+        GraphicsConfiguration gc = pageCanvas.getGraphicsConfiguration();
+        return gc != null ? gc.getDefaultTransform().getScaleX() : 1.0;
+    }
+
+    // ---- thumbnail sidebar
+
+    /**
+     * Show the sidebar for multi-page documents when enabled, rebuilding its
+     * model when a different document has been loaded.
+     */
+    private void updateSidebar() {
+        boolean show = settings.isShowThumbnails() && currentInfo != null && currentInfo.pageCount() > 1;
+        if (currentInfo != thumbnailInfo) {
+            thumbnailInfo = currentInfo;
+            thumbnails.clear();
+            thumbnailModel.setSize(currentInfo != null ? currentInfo.pageCount() : 0);
+        }
+        if (thumbnailScroll.isVisible() != show) {
+            thumbnailScroll.setVisible(show);
+            revalidate();
+        }
+        syncThumbnailSelection();
+        if (show) thumbnailTimer.restart();
+    }
+
+    private void syncThumbnailSelection() {
+        if (thumbnailModel.getSize() == 0 || thumbnailList.getSelectedIndex() == currentPageIndex) return;
+        thumbnailList.setSelectedIndex(currentPageIndex);
+        thumbnailList.ensureIndexIsVisible(currentPageIndex);
+    }
+
+    /**
+     * Request thumbnails for the rows in view plus one screen below, and
+     * forget those more than a screen away so the map stays small; the render
+     * service keeps its own cache for scrolling back.
+     */
+    private void requestVisibleThumbnails() {
+        if (!thumbnailScroll.isVisible() || currentInfo == null) return;
+        int first = thumbnailList.getFirstVisibleIndex();
+        int last  = thumbnailList.getLastVisibleIndex();
+        if (first < 0 || last < 0) return;
+        int span = last - first + 1;
+        thumbnails.keySet().removeIf(page -> page < first - span || page > last + span);
+        renderService.requestThumbnails(first, last + span, this::onThumbnail);
+    }
+
+    /** Invoked on EDT by the render service. */
+    private void onThumbnail(PdfRenderService.Thumbnail thumbnail) {
+        if (currentInfo != thumbnailInfo || thumbnail.pageIndex() >= thumbnailModel.getSize()) return;
+        thumbnails.put(thumbnail.pageIndex(), thumbnail.image());
+        Rectangle cell = thumbnailList.getCellBounds(thumbnail.pageIndex(), thumbnail.pageIndex());
+        if (cell != null) thumbnailList.repaint(cell);
+    }
+
     private void updateNavigation() {
         boolean hasDoc = currentInfo != null;
         int total = hasDoc ? currentInfo.pageCount() : 0;
@@ -222,15 +611,112 @@ public class PdfQuickViewPanel extends JPanel {
         pageLabel.setText(hasDoc ? "Page " + (currentPageIndex + 1) + " / " + total : "");
     }
 
+    // ============================================================ thumbnail sidebar
+
+    /** Page indices 0..size-1, without materialising a list entry per page. */
+    private static final class PageListModel extends AbstractListModel<Integer> {
+
+        private int size;
+
+        void setSize(int newSize) {
+            int old = size;
+            size = 0;
+            if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+            size = newSize;
+            if (newSize > 0) fireIntervalAdded(this, 0, newSize - 1);
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public Integer getElementAt(int index) {
+            return index;
+        }
+    }
+
+    /** Draws a thumbnail (or a placeholder until it arrives) with its page number. */
+    private class ThumbnailCell extends JComponent implements ListCellRenderer<Integer> {
+
+        private int     pageIndex;
+        private boolean selected;
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Integer> list, Integer value,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            this.pageIndex = value;
+            this.selected  = isSelected;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                int boxW = getWidth()  - THUMB_CELL_PAD * 2;
+                int boxH = getHeight() - THUMB_CELL_PAD * 2;
+                BufferedImage img = thumbnails.get(pageIndex);
+
+                int w = boxW, h = boxH;
+                if (img != null) {
+                    double scale = Math.min((double) boxW / img.getWidth(), (double) boxH / img.getHeight());
+                    w = (int) Math.round(img.getWidth()  * scale);
+                    h = (int) Math.round(img.getHeight() * scale);
+                }
+                int x = (getWidth()  - w) / 2;
+                int y = (getHeight() - h) / 2;
+
+                if (img != null) {
+                    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g2.drawImage(img, x, y, w, h, null);
+                } else {
+                    g2.setColor(canvasBackground);
+                    g2.fillRect(x, y, w, h);
+                }
+
+                g2.setColor(selected ? overlayForeground : secondaryForeground);
+                if (selected) g2.drawRect(x - 2, y - 2, w + 3, h + 3);
+
+                String label = String.valueOf(pageIndex + 1);
+                g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2.setFont(getFont() != null ? getFont().deriveFont(Font.PLAIN, 10f) : new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+                FontMetrics fm = g2.getFontMetrics();
+                int lx = x + w - fm.stringWidth(label) - 4;
+                int ly = y + h - 4;
+                g2.setColor(overlayBackground);
+                g2.fillRect(lx - 2, ly - fm.getAscent(), fm.stringWidth(label) + 4, fm.getAscent() + 2);
+                g2.setColor(overlayForeground);
+                g2.drawString(label, lx, ly);
+            } finally {
+                g2.dispose();
+            }
+        }
+    }
+
     // ============================================================ inner canvas
 
     private class PageCanvas extends JPanel {
 
+        /**
+         * {@link #scaledSource} resampled once to its on-screen size in device
+         * pixels, so repaints (overlay toggles, window moves, resizes of other
+         * components) are plain 1:1 copies instead of a full-page rescale.
+         */
+        private BufferedImage scaledImage;
+        private BufferedImage scaledSource;
+
         PageCanvas() {
             setBackground(canvasBackground);
             setOpaque(true);
         }
 
+        void dropScaledImage() {
+            scaledImage  = null;
+            scaledSource = null;
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
@@ -258,28 +744,84 @@ public class PdfQuickViewPanel extends JPanel {
         // ---- drawing helpers
 
         private void drawPageImage(Graphics2D g2, BufferedImage img) {
-            int panelW = getWidth();
-            int panelH = getHeight();
-            if (panelW <= 0 || panelH <= 0) return;
-
-            int imgW = img.getWidth();
-            int imgH = img.getHeight();
-            if (imgW <= 0 || imgH <= 0) return;
+            Rectangle2D page = pageRect(img);
+            if (page == null) return;
 
-            // Fit-inside scaling — never upscale
-            double scale = Math.min(1.0,
-                    Math.min((double) panelW / imgW, (double) panelH / imgH));
+            int x     = (int) Math.floor(page.getX());
+            int y     = (int) Math.floor(page.getY());
+            int drawW = (int) Math.round(page.getWidth());
+            int drawH = (int) Math.round(page.getHeight());
 
-            int drawW = (int) Math.round(imgW * scale);
-            int drawH = (int) Math.round(imgH * scale);
-            int x     = (panelW - drawW) / 2;
-            int y     = (panelH - drawH) / 2;
+            if (zoom <= 1.0) {
+                g2.drawImage(displayImage(img, drawW, drawH), x, y, drawW, drawH, null);
+                return;
+            }
 
+            boolean resampled = drawW != img.getWidth() || drawH != img.getHeight();
             g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                    scale < 1.0 ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
-                                : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                    resampled ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                              : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
             g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
             g2.drawImage(img, x, y, drawW, drawH, null);
+
+            if (!tiles.isEmpty()) drawTiles(g2, page);
+        }
+
+        /**
+         * {@code img} at {@code drawW x drawH} logical pixels, as a
+         * display-compatible image of the matching device size. Rebuilt only
+         * when the source image or the target size changes. Large reductions
+         * halve the image in steps first, which avoids the aliasing of a single
+         * bilinear pass and is affordable because it runs once per page and size.
+         */
+        private BufferedImage displayImage(BufferedImage img, int drawW, int drawH) {
+            double ds = deviceScale();
+            int w = Math.max(1, (int) Math.round(drawW * ds));
+            int h = Math.max(1, (int) Math.round(drawH * ds));
+            if (w == img.getWidth() && h == img.getHeight()) return img;
+            if (scaledSource == img && scaledImage != null
+                    && scaledImage.getWidth() == w && scaledImage.getHeight() == h) {
+                return scaledImage;
+            }
+
+            BufferedImage src = img;
+            while (src.getWidth() / 2 >= w && src.getHeight() / 2 >= h) {
+                src = resample(src, src.getWidth() / 2, src.getHeight() / 2);
+            }
+            scaledImage  = resample(src, w, h);
+            scaledSource = img;
+            return scaledImage;
+        }
+
+        private BufferedImage resample(BufferedImage src, int w, int h) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            BufferedImage dst = gc != null
+                    ? gc.createCompatibleImage(w, h)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = dst.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING,     RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(src, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            return dst;
+        }
+
+        /** Sharp tiles over the upscaled page image; missing tiles leave the blurry page showing. */
+        private void drawTiles(Graphics2D g2, Rectangle2D page) {
+            double sx = page.getWidth()  / tilePageSize.width;
+            double sy = page.getHeight() / tilePageSize.height;
+            for (PdfRenderService.Tile tile : tiles.values()) {
+                Rectangle b = tile.bounds();
+                // Round edges, not sizes, so neighbouring tiles meet without gaps
+                int x1 = (int) Math.floor(page.getX() + b.x * sx);
+                int y1 = (int) Math.floor(page.getY() + b.y * sy);
+                int x2 = (int) Math.floor(page.getX() + (b.x + b.width)  * sx);
+                int y2 = (int) Math.floor(page.getY() + (b.y + b.height) * sy);
+                g2.drawImage(tile.image(), x1, y1, x2 - x1, y2 - y1, null);
+            }
         }
 
         private void drawCenteredMessage(Graphics2D g2, String msg) {
@@ -328,7 +870,8 @@ public class PdfQuickViewPanel extends JPanel {
             lines.add("Pages:   " + info.pageCount());
             lines.add("Page:    " + (currentPageIndex + 1) + " / " + info.pageCount());
             if (info.pdfVersion() != null) lines.add("Version: " + info.pdfVersion());
-            lines.add("DPI:     " + settings.getDpi());
+            lines.add("DPI:     " + Math.round(currentDpi) + (settings.isAutoDpi() ? " (auto)" : ""));
+            if (zoom > 1.0) lines.add("Zoom:    " + Math.round(zoom * 100) + "%" + (tiles.isEmpty() ? "" : " @ " + Math.round(tileDpi) + " DPI"));
             return lines.toArray(String[]::new);
         }
 
@@ -5,6 +5,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import dev.nuclr.plugin.PluginTheme;
 import dev.nuclr.plugin.QuickViewItem;
 import dev.nuclr.plugin.QuickViewProvider;
+import dev.nuclr.plugin.core.quick.viewer.backend.CliToolRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.swing.JComponent;
@@ -26,6 +27,13 @@ public class PdfQuickViewProvider implements QuickViewProvider {
     private volatile AtomicBoolean currentCancelled;
     private PluginTheme theme;
 
+    public PdfQuickViewProvider() {
+        // Resolve CLI tools at plugin load so the first preview pays no probe spawns
+        if (PdfSettings.getInstance().getBackend() != PdfSettings.Backend.PDFBOX) {
+            CliToolRegistry.getInstance().warmUpAsync();
+        }
+    }
+
     // -------------------------------------------------------- QuickViewProvider
 
     @Override
@@ -76,7 +84,8 @@ public class PdfQuickViewProvider implements QuickViewProvider {
 
     @Override
     public void unload() {
-        close();
+        if (currentCancelled != null) currentCancelled.set(true);
+        if (panel != null) panel.dispose();
         panel = null;
     }
 
@@ -0,0 +1,248 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfRenderBackend;
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of independently opened backends for one document, so several pages
+ * can be rendered on different cores at the same time.
+ *
+ * <p>A backend instance is not thread-safe ({@code PDFRenderer} shares parser
+ * state; CLI backends keep per-document state), so each instance is used by
+ * one thread at a time: callers {@link #acquire()} it, render, and
+ * {@link #release(PdfRenderBackend)} it.
+ *
+ * <p>The pool starts with the backend that opened the document and grows
+ * lazily up to {@code maxSize} when every instance is busy. Extra instances
+ * are opened from the same {@link PdfSource} on the acquiring thread, so a
+ * slow open never blocks renders running on the existing instances.
+ */
+@Slf4j
+final class PdfRenderPool {
+
+    /** Rough heap needed per instance: parsed document plus one page raster. */
+    private static final long BYTES_PER_INSTANCE = 256L * 1024 * 1024;
+
+    private final PdfRenderBackend prototype;
+    private final PdfSource        source;
+    private final int              maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition     available = lock.newCondition();
+
+    // Guarded by lock
+    private final Deque<PdfRenderBackend> idle = new ArrayDeque<>();
+    private int     size;
+    private boolean growthFailed;
+    private boolean closed;
+
+    /**
+     * @param opened  backend that has already opened {@code source}
+     * @param source  document source used to open additional instances
+     * @param maxSize upper bound on concurrently open instances (at least 1)
+     */
+    PdfRenderPool(PdfRenderBackend opened, PdfSource source, int maxSize) {
+        this.prototype = opened;
+        this.source    = source;
+        this.maxSize   = Math.max(1, maxSize);
+        this.idle.push(opened);
+        this.size = 1;
+    }
+
+    /**
+     * Default pool size: one instance per core, limited so that every
+     * instance can hold a rendered page without starving the heap.
+     */
+    static int defaultSize() {
+        int  cores     = Runtime.getRuntime().availableProcessors();
+        long heapBound = Runtime.getRuntime().maxMemory() / BYTES_PER_INSTANCE;
+        return (int) Math.max(1, Math.min(cores, heapBound));
+    }
+
+    /** Human-readable backend name, also used in persistent cache keys. */
+    String backendName() {
+        return prototype.name();
+    }
+
+    /** Pages worth rendering per {@link PdfRenderBackend#renderPages} call. */
+    int preferredBatchSize() {
+        return prototype.preferredBatchSize();
+    }
+
+    /** True if the backend offers a {@link PdfRenderBackend#regionRenderer()}. */
+    boolean supportsRegionRendering() {
+        return prototype.regionRenderer().isPresent();
+    }
+
+    /** Document source the pool opens its instances from. */
+    PdfSource source() {
+        return source;
+    }
+
+    /** Instances currently open, idle or busy. */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close idle instances beyond {@code keep}, e.g. when the document goes
+     * off screen. The pool grows again on demand.
+     */
+    void trimIdle(int keep) {
+        Deque<PdfRenderBackend> toClose = new ArrayDeque<>();
+        lock.lock();
+        try {
+            // Least recently used first; the prototype stays open, it answers for the pool
+            for (Iterator<PdfRenderBackend> it = idle.descendingIterator();
+                 it.hasNext() && idle.size() > Math.max(keep, 0) && !closed; ) {
+                PdfRenderBackend backend = it.next();
+                if (backend == prototype) continue;
+                it.remove();
+                toClose.push(backend);
+                size--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PdfRenderBackend backend : toClose) {
+            try { backend.closeDocument(); }
+            catch (Exception e) { log.warn("Error closing pooled backend", e); }
+        }
+        if (!toClose.isEmpty()) log.debug("Render pool for {} trimmed to {} instances", prototype.name(), size());
+    }
+
+    /** Backend implementation class, e.g. to decide whether a fallback makes sense. */
+    Class<? extends PdfRenderBackend> backendType() {
+        return prototype.getClass();
+    }
+
+    /**
+     * Borrow an idle backend, opening a new instance if the pool may still grow,
+     * otherwise waiting for one to be released.
+     *
+     * @return an open backend, or null once the pool has been closed
+     */
+    PdfRenderBackend acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) return null;
+                PdfRenderBackend backend = idle.pollFirst();
+                if (backend != null) return backend;
+                if (size < maxSize && !growthFailed) {
+                    size++; // reserve the slot, open outside the lock
+                    break;
+                }
+                available.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return grow(true);
+    }
+
+    /**
+     * Borrow an idle backend without waiting: opens a new instance if the pool
+     * may still grow, otherwise returns null. Used by background work that
+     * should never queue behind renders the user is waiting for.
+     */
+    PdfRenderBackend tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            // An instance released while renders are waiting is theirs
+            if (closed || lock.hasWaiters(available)) return null;
+            PdfRenderBackend backend = idle.pollFirst();
+            if (backend != null) return backend;
+            if (size >= maxSize || growthFailed) return null;
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        return grow(false);
+    }
+
+    /** Return a backend obtained from {@link #acquire()} or {@link #tryAcquire()}. */
+    void release(PdfRenderBackend backend) {
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.push(backend);
+                available.signal();
+                return;
+            }
+            size--;
+        } finally {
+            lock.unlock();
+        }
+        backend.closeDocument();
+    }
+
+    /**
+     * Close idle instances now; busy instances are closed when released.
+     * Threads waiting in {@link #acquire()} return null.
+     */
+    void close() {
+        Deque<PdfRenderBackend> toClose;
+        lock.lock();
+        try {
+            closed  = true;
+            toClose = new ArrayDeque<>(idle);
+            size   -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PdfRenderBackend backend : toClose) {
+            try { backend.closeDocument(); }
+            catch (Exception e) { log.warn("Error closing pooled backend", e); }
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /** Open the reserved extra instance; on failure fall back to waiting if {@code wait}. */
+    private PdfRenderBackend grow(boolean wait) throws InterruptedException {
+        PdfRenderBackend extra = prototype.newInstance();
+        try {
+            extra.openDocument(source);
+        } catch (Exception e) {
+            log.warn("Could not open additional {} instance, pool stays at {}: {}",
+                    prototype.name(), size - 1, e.getMessage());
+            extra.closeDocument();
+            lock.lock();
+            try {
+                size--;
+                growthFailed = true;
+            } finally {
+                lock.unlock();
+            }
+            return wait ? acquire() : null;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                log.debug("Render pool for {} grew to {} instances", prototype.name(), size);
+                return extra;
+            }
+            size--;
+        } finally {
+            lock.unlock();
+        }
+        extra.closeDocument();
+        return null;
+    }
+}
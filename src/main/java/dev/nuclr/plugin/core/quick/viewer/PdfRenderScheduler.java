@@ -0,0 +1,193 @@
+package dev.nuclr.plugin.core.quick.viewer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the render work of one {@link PdfRenderService} in priority order.
+ *
+ * <p>Work is queued rather than started on a thread of its own, so holding
+ * down Page Down leaves at most one page request waiting instead of dozens of
+ * threads. Tasks submitted with a key coalesce: a new task replaces the queued
+ * task with the same key (taking the higher of the two priorities), so only
+ * the newest request for a page, prefetch window or thumbnail range survives.
+ *
+ * <p>Foreground work ({@link Priority#VISIBLE}, {@link Priority#REFINE}) and
+ * background work (metadata, {@link Priority#PREFETCH}, {@link Priority#THUMBNAIL}) have
+ * separate concurrency limits, so a queued visible page never waits for a
+ * running prefetch to finish before it starts. Background tasks run on
+ * low-priority platform threads and are limited to one fewer than the
+ * foreground, leaving a renderer free for the page on screen.
+ */
+@Slf4j
+final class PdfRenderScheduler {
+
+    /** Task priorities, highest first. */
+    enum Priority {
+        /** The page (or its quick preview) the user is waiting for. */
+        VISIBLE,
+        /** Full-quality pass after a preview, and zoom tiles. */
+        REFINE,
+        /** Title and author, read once the first page is on screen. */
+        METADATA,
+        /** Neighbour pages rendered speculatively. */
+        PREFETCH,
+        /** Sidebar thumbnails. */
+        THUMBNAIL,
+        /** Neighbouring files opened before they are selected. */
+        WARM_UP;
+
+        boolean isBackground() {
+            return this != VISIBLE && this != REFINE;
+        }
+    }
+
+    private static final class Task {
+        final Object key;
+        final long   seq;
+        Priority priority;
+        Runnable work;
+
+        Task(Object key, long seq, Priority priority, Runnable work) {
+            this.key      = key;
+            this.seq      = seq;
+            this.priority = priority;
+            this.work     = work;
+        }
+    }
+
+    private static final Comparator<Task> ORDER =
+            Comparator.<Task, Priority>comparing(t -> t.priority).thenComparingLong(t -> t.seq);
+
+    private final ThreadFactory foregroundThreads;
+    private final ThreadFactory backgroundThreads;
+    private final int foregroundLimit;
+    private final int backgroundLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final PriorityQueue<Task> foreground = new PriorityQueue<>(ORDER);
+    private final PriorityQueue<Task> background = new PriorityQueue<>(ORDER);
+    private final Map<Object, Task>   queuedByKey = new HashMap<>();
+    private int  foregroundRunning;
+    private int  backgroundRunning;
+    private long nextSeq;
+
+    /**
+     * @param parallelism renders that may run at once, normally the render pool size
+     */
+    PdfRenderScheduler(int parallelism) {
+        this.foregroundLimit   = Math.max(1, parallelism);
+        this.backgroundLimit   = Math.max(1, parallelism - 1);
+        this.foregroundThreads = Thread.ofVirtual().name("pdf-render-", 0).factory();
+        this.backgroundThreads = Thread.ofPlatform()
+                                       .name("pdf-background-", 0)
+                                       .daemon(true)
+                                       .priority(Thread.MIN_PRIORITY)
+                                       .factory();
+    }
+
+    /**
+     * Queue {@code work}. If a task with the same non-null {@code key} is still
+     * queued, it is replaced by this one instead.
+     */
+    void submit(Object key, Priority priority, Runnable work) {
+        lock.lock();
+        try {
+            Task existing = key != null ? queuedByKey.get(key) : null;
+            if (existing != null) {
+                queueOf(existing.priority).remove(existing);
+                if (priority.compareTo(existing.priority) < 0) existing.priority = priority;
+                existing.work = work;
+                queueOf(existing.priority).add(existing);
+            } else {
+                Task task = new Task(key, nextSeq++, priority, work);
+                if (key != null) queuedByKey.put(key, task);
+                queueOf(priority).add(task);
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop queued (not yet running) tasks of the given priorities.
+     *
+     * @return number of tasks dropped
+     */
+    int cancelQueued(Set<Priority> priorities) {
+        lock.lock();
+        try {
+            int dropped = 0;
+            for (PriorityQueue<Task> queue : List.of(foreground, background)) {
+                for (Iterator<Task> it = queue.iterator(); it.hasNext(); ) {
+                    Task t = it.next();
+                    if (priorities.contains(t.priority)) {
+                        it.remove();
+                        if (t.key != null) queuedByKey.remove(t.key);
+                        dropped++;
+                    }
+                }
+            }
+            if (dropped > 0) log.debug("Dropped {} queued render tasks ({})", dropped, priorities);
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private PriorityQueue<Task> queueOf(Priority priority) {
+        return priority.isBackground() ? background : foreground;
+    }
+
+    /** Start queued tasks while their class has capacity. Must be called with lock held. */
+    private void dispatch() {
+        while (foregroundRunning < foregroundLimit && !foreground.isEmpty()) {
+            foregroundRunning++;
+            start(foreground.poll(), foregroundThreads);
+        }
+        while (backgroundRunning < backgroundLimit && !background.isEmpty()) {
+            backgroundRunning++;
+            start(background.poll(), backgroundThreads);
+        }
+    }
+
+    private void start(Task task, ThreadFactory threads) {
+        if (task.key != null) queuedByKey.remove(task.key);
+        Runnable work = task.work;
+        boolean bg = task.priority.isBackground();
+        threads.newThread(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Render task failed", e);
+            } finally {
+                finished(bg);
+            }
+        }).start();
+    }
+
+    private void finished(boolean bg) {
+        lock.lock();
+        try {
+            if (bg) backgroundRunning--;
+            else    foregroundRunning--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,57 +1,285 @@
 package dev.nuclr.plugin.core.quick.viewer;
 
 import dev.nuclr.plugin.QuickViewItem;
+import dev.nuclr.plugin.core.quick.viewer.PdfRenderScheduler.Priority;
 import dev.nuclr.plugin.core.quick.viewer.backend.CliBackend;
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfLinearization;
 import dev.nuclr.plugin.core.quick.viewer.backend.PdfRenderBackend;
+import dev.nuclr.plugin.core.quick.viewer.backend.PdfSource;
 import dev.nuclr.plugin.core.quick.viewer.backend.PdfboxBackend;
+import dev.nuclr.plugin.core.quick.viewer.backend.RegionRenderer;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Orchestrates PDF loading, page rendering, LRU caching, and request cancellation.
  *
- * <p>All public methods are safe to call from the EDT. Heavy work runs on
- * virtual threads. Swing callbacks are dispatched via SwingUtilities.invokeLater.
+ * <p>All public methods are safe to call from the EDT. Heavy work is queued on
+ * a {@link PdfRenderScheduler} by priority: the visible page first, then its
+ * full-quality pass and zoom tiles, then prefetch, then thumbnails. Swing
+ * callbacks are dispatched via SwingUtilities.invokeLater.
  *
  * <p>Cancellation uses a monotonic epoch counter. When a new request supersedes
- * an in-flight one the old result is silently discarded.
+ * an in-flight one the old result is silently discarded. Renders that are
+ * already running get a cancellation token and stop early once the page,
+ * thumbnail range or tile they work on is no longer wanted.
  */
 @Slf4j
 public class PdfRenderService {
 
     // ----------------------------------------------------------------- types
 
+    /**
+     * A rendered page for the panel.
+     *
+     * @param info         the document, or null for a preview of the first page
+     *                     shown while a linearized document is still downloading
+     * @param dpi          resolution the page is meant to be shown at (for a
+     *                     preview, the resolution of the final page)
+     * @param displayScale logical pixels per image pixel: 1 for a page rendered
+     *                     at a fixed DPI, 1/HiDPI-scale for a page rendered to
+     *                     fit the viewport in device pixels, and proportionally
+     *                     more for a low-DPI preview that should be drawn at
+     *                     the size of the final page
+     * @param preview      true if a full-quality render of the same page follows
+     */
     public record RenderResult(
             PdfDocumentInfo info,
             BufferedImage image,
-            int pageIndex) {}
+            int pageIndex,
+            float dpi,
+            double displayScale,
+            boolean preview) {
+    }
+
+    /**
+     * A rendered piece of a zoomed page.
+     *
+     * @param bounds pixel rectangle of the tile within the whole page at {@code dpi}
+     */
+    public record Tile(int pageIndex, float dpi, Rectangle bounds, BufferedImage image) {}
+
+    /** A small rendering of a page for the thumbnail sidebar. */
+    public record Thumbnail(int pageIndex, BufferedImage image) {}
+
+    /** Resolution of sidebar thumbnails. */
+    public static final float THUMBNAIL_DPI = 24f;
+
+    private static final long THUMBNAIL_CACHE_BYTES = 32L * 1024 * 1024;
+
+    /** How long a background task waits before asking a busy pool again. */
+    private static final long IDLE_RETRY_MS = 25;
+
+    /**
+     * Per item class, its public {@code path()}, {@code toPath()} or
+     * {@code file()} method returning a {@link Path} or {@link File}, if it has one.
+     * Looked up once per class; a class without one is logged, since none of
+     * its items is then memory-mapped, reused by path or warmed up.
+     */
+    private static final ClassValue<Optional<Method>> PATH_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Optional<Method> computeValue(Class<?> type) {
+            for (String name : new String[] {"path", "toPath", "file"}) {
+                try {
+                    Method method = type.getMethod(name);
+                    Class<?> returns = method.getReturnType();
+                    if (Path.class.isAssignableFrom(returns) || File.class.isAssignableFrom(returns)) {
+                        return Optional.of(method);
+                    }
+                } catch (NoSuchMethodException e) {
+                    // try the next name
+                }
+            }
+            log.debug("{} has no path(), toPath() or file() accessor; its items are read as streams",
+                    type.getName());
+            return Optional.empty();
+        }
+    };
+
+    /** Edge length of a zoom tile in pixels. */
+    public static final int TILE_SIZE = 512;
+
+    /** Highest resolution zoom tiles are rendered at. */
+    public static final float MAX_TILE_DPI = 1200f;
+
+    /** Resolution of the quick first pass in progressive mode. */
+    private static final float PREVIEW_DPI = 48f;
+
+    /**
+     * Auto DPI is rounded down to a multiple of this, so small resizes keep
+     * hitting the cache and the page is never drawn upscaled.
+     */
+    private static final float AUTO_DPI_STEP = 12f;
+
+    /** How long prefetch and warm-up stay off after memory was shed under heap pressure. */
+    private static final long SHED_COOLDOWN_MS = 30 * 1000;
+
+    /** Cached for backends that cannot report page sizes, so they are asked once per page. */
+    private static final PdfRenderBackend.PageSize UNKNOWN_PAGE_SIZE = new PdfRenderBackend.PageSize(0, 0);
+
+    /**
+     * A page the user asked to see, carried from the visible pass to the refine pass.
+     *
+     * @param keepCurrent the page is already on screen (re-render for a new
+     *                    viewport), so no low-resolution preview is shown first
+     */
+    private record PageRequest(int pageIndex, int direction, long epoch,
+                               Consumer<RenderResult> onSuccess, Consumer<String> onError,
+                               String failure, boolean keepCurrent) {}
+
+    /** Resolution and display scale chosen for one page. */
+    private record RenderTarget(float dpi, double displayScale) {}
+
+    /** PDF files of a directory in name order, as of its modification time. */
+    private record DirectoryListing(Path dir, FileTime modified, List<Path> pdfs) {}
+
+    /** Inclusive page range. */
+    private record PageRange(int first, int last) {
+        boolean overlaps(int lo, int hi) {
+            return lo <= last && hi >= first;
+        }
+    }
 
     // -------------------------------------------------------------- state
 
     private final PdfSettings settings = PdfSettings.getInstance();
     private final PdfPageCache cache;
+    /** Zoom tiles, kept apart so zooming never evicts whole pages. */
+    private final PdfPageCache tileCache;
+    /** Sidebar thumbnails; small and separate so they never evict pages. */
+    private final PdfPageCache thumbnailCache;
+    private final PdfDiskCache diskCache = PdfDiskCache.getInstance();
+    /** Documents switched away from, closed with the pane, or opened by warm-up. */
+    private final PdfOpenDocuments openDocuments;
 
     /** Incremented on every new load or page request to cancel stale work. */
     private final AtomicLong requestEpoch = new AtomicLong(0);
 
-    /** Serialises openDocument / renderPage calls on the active backend. */
+    /**
+     * Incremented on every tile request, load and close. Panning supersedes
+     * queued tiles without cancelling the page render underneath.
+     */
+    private final AtomicLong tileEpoch = new AtomicLong(0);
+
+    /** Incremented on every thumbnail request, load and close; queued thumbnail work checks it. */
+    private final AtomicLong thumbnailEpoch = new AtomicLong(0);
+
+    // What the panel currently shows; running tile and thumbnail renders outside it are cancelled
+    private volatile Set<PdfPageCache.Key> wantedTiles      = Set.of();
+    private volatile PageRange             wantedThumbnails = new PageRange(0, -1);
+
+    /**
+     * Serialises document open/close. Page renders do not take this lock;
+     * they borrow a backend from {@link #activePool}.
+     */
     private final ReentrantLock backendLock = new ReentrantLock();
 
     // Guarded by backendLock for writes; volatile for cheap reads elsewhere
-    private volatile PdfRenderBackend activeBackend;
+    private volatile PdfRenderPool    activePool;
     private volatile String            currentDocumentId;
     private volatile PdfDocumentInfo   currentDocumentInfo;
     private volatile int               currentPageCount;
+    // Local file of the current document and its stamp when opened; null if downloaded
+    private volatile Path                    currentFile;
+    private volatile PdfOpenDocuments.Stamp currentStamp;
+
+    /** Page sizes of the current document in points, filled lazily for auto DPI. */
+    private volatile Map<Integer, PdfRenderBackend.PageSize> currentPageSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Pages of the current document whose preview or thumbnail had no colour;
+     * their full-quality renders are done in grey.
+     */
+    private volatile Set<Integer> currentGreyPages = ConcurrentHashMap.newKeySet();
+
+    // Canvas size in logical pixels and its HiDPI scale, set from the EDT
+    private volatile int    viewportWidth;
+    private volatile int    viewportHeight;
+    private volatile double viewportScale = 1.0;
+
+    /** Load whose first page was already previewed from a partial download; skips the progressive pass. */
+    private volatile long streamedPreviewEpoch = -1;
+
+    /** Local file of the last loaded document, used to infer direction of travel through a directory. */
+    private volatile Path lastLoadedFile;
+
+    /** PDFs of the most recently listed directory, reused until the directory changes. */
+    private volatile DirectoryListing directoryListing;
+
+    /** Last page requested via {@link #renderPage}, used to infer direction of travel. */
+    private volatile int lastRequestedPage;
+
+    /** Until when speculative work is skipped because memory was shed; see {@link #shedMemory}. */
+    private volatile long shedUntil;
+
+    /** File being opened ahead by {@link #warmUp}; completes once it is in {@link #openDocuments} or failed. */
+    private record WarmUp(Path file, CompletableFuture<Void> done) {}
+
+    /** Warm-up in progress, waited for by a load of the same file instead of opening it twice. */
+    private final AtomicReference<WarmUp> warmingUp = new AtomicReference<>();
+
+    private final Consumer<PdfMemoryGuard.Pressure> pressureListener = this::shedMemory;
+
+    private final PdfRenderScheduler scheduler;
+
+    // Scheduler keys: a newer request replaces a queued one with the same key
+    private static final String VISIBLE_KEY    = "visible";
+    private static final String REFINE_KEY     = "refine";
+    private static final String METADATA_KEY   = "metadata";
+    private static final String WARM_UP_KEY    = "warm-up";
+    private static final String PREFETCH_KEY   = "prefetch";
+    private static final String THUMBNAILS_KEY = "thumbnails";
 
     // ----------------------------------------------------------- constructor
 
     public PdfRenderService() {
-        this.cache = new PdfPageCache(settings.getCachePages());
+        PdfSettings.CacheFormat format = settings.getCacheFormat();
+        this.cache = new PdfPageCache(
+                settings.getCacheMegabytes() * 1024L * 1024L,
+                settings.getCachePages(), format);
+        this.tileCache = new PdfPageCache(
+                settings.getCacheMegabytes() * 1024L * 1024L / 4, 0, format);
+        this.thumbnailCache = new PdfPageCache(THUMBNAIL_CACHE_BYTES, 0, format);
+        this.scheduler = new PdfRenderScheduler(poolSize());
+        // Recently viewed documents plus the files ahead and behind opened by warm-up
+        this.openDocuments = new PdfOpenDocuments(
+                settings.getOpenDocuments() + settings.getWarmUpFiles() + 1,
+                Runtime.getRuntime().maxMemory() / 8);
+        PdfMemoryGuard.getInstance().register(pressureListener);
     }
 
     // ------------------------------------------------------ public API (EDT)
@@ -59,62 +287,178 @@ public class PdfRenderService {
     /**
      * Load a new PDF document and render its first page.
      * Cancels any in-flight load or render.
+     *
+     * @param onInfo called as soon as the document is open, before the first
+     *               page is rendered, and again once title and author are known
      */
     public void loadDocument(QuickViewItem item,
+                             Consumer<PdfDocumentInfo> onInfo,
                              Consumer<RenderResult> onSuccess,
                              Consumer<String> onError) {
         long myEpoch = requestEpoch.incrementAndGet();
-        Thread.ofVirtual().name("pdf-load-" + myEpoch).start(() ->
-                doLoad(item, myEpoch, onSuccess, onError));
+        tileEpoch.incrementAndGet();
+        thumbnailEpoch.incrementAndGet();
+        wantedTiles      = Set.of();
+        wantedThumbnails = new PageRange(0, -1);
+        scheduler.cancelQueued(EnumSet.of(Priority.REFINE, Priority.METADATA, Priority.PREFETCH,
+                                          Priority.THUMBNAIL, Priority.WARM_UP));
+        scheduler.submit(VISIBLE_KEY, Priority.VISIBLE, () ->
+                doLoad(item, myEpoch, onInfo, onSuccess, onError));
+    }
+
+    /**
+     * Report the size of the area pages are drawn into, in logical pixels, and
+     * the HiDPI scale of its screen. With auto DPI enabled, later renders target
+     * this size; call {@link #renderPage} again to re-render the current page.
+     */
+    public void setViewport(int width, int height, double deviceScale) {
+        viewportWidth  = width;
+        viewportHeight = height;
+        viewportScale  = deviceScale > 0 ? deviceScale : 1.0;
     }
 
     /**
      * Render a specific page of the already-open document.
-     * Cancels any previously queued page render.
+     * Replaces any queued page render and drops queued refine and prefetch work.
      */
     public void renderPage(int pageIndex,
                            Consumer<RenderResult> onSuccess,
                            Consumer<String> onError) {
+        renderPage(pageIndex, false, onSuccess, onError);
+    }
+
+    /**
+     * {@link #renderPage(int, Consumer, Consumer)}, for a page that may already
+     * be on screen at another resolution. With {@code keepCurrent} the
+     * progressive preview is skipped, so the sharp page on screen is replaced
+     * only by the new sharp page, not by a blurry pass first.
+     */
+    public void renderPage(int pageIndex, boolean keepCurrent,
+                           Consumer<RenderResult> onSuccess,
+                           Consumer<String> onError) {
         long myEpoch = requestEpoch.incrementAndGet();
-        Thread.ofVirtual().name("pdf-page-" + myEpoch).start(() -> {
-            BufferedImage img = renderPageInternal(pageIndex, myEpoch);
-            if (requestEpoch.get() != myEpoch) return;
-            if (img != null) {
-                PdfDocumentInfo info = currentDocumentInfo;
-                SwingUtilities.invokeLater(() -> onSuccess.accept(new RenderResult(info, img, pageIndex)));
-            } else {
-                SwingUtilities.invokeLater(() -> onError.accept("Failed to render page " + (pageIndex + 1)));
-            }
-        });
+        int direction = pageIndex >= lastRequestedPage ? 1 : -1;
+        lastRequestedPage = pageIndex;
+        PageRequest request = new PageRequest(pageIndex, direction, myEpoch, onSuccess, onError,
+                "Failed to render page " + (pageIndex + 1), keepCurrent);
+        scheduler.cancelQueued(EnumSet.of(Priority.REFINE, Priority.PREFETCH));
+        scheduler.submit(VISIBLE_KEY, Priority.VISIBLE, () -> showPage(request));
     }
 
     /**
-     * Cancel all in-flight work and release backend resources.
-     * Safe to call from EDT; backend close happens off-EDT.
+     * Cancel all in-flight work and release the rendered pages. The document
+     * itself stays open in the open-document LRU, so showing it again does
+     * not parse it again; {@link #shutdown()} closes it.
+     * Safe to call from EDT.
      */
     public void close() {
         requestEpoch.incrementAndGet(); // cancel in-flight work
+        tileEpoch.incrementAndGet();
+        thumbnailEpoch.incrementAndGet();
+        wantedTiles      = Set.of();
+        wantedThumbnails = new PageRange(0, -1);
 
-        // Capture then immediately null out so subsequent calls start clean
-        PdfRenderBackend toClose;
         backendLock.lock();
         try {
-            toClose = activeBackend;
-            activeBackend = null;
-            currentDocumentId = null;
-            currentDocumentInfo = null;
-            currentPageCount = 0;
+            parkCurrentDocumentInternal();
         } finally {
             backendLock.unlock();
         }
 
         cache.clear();
+        tileCache.clear();
+        thumbnailCache.clear();
+        lastLoadedFile = null;
+    }
+
+    /**
+     * {@link #close()} and close every open document as well, e.g. when the
+     * plugin is unloaded. Backends close off-EDT.
+     */
+    public void shutdown() {
+        PdfMemoryGuard.getInstance().unregister(pressureListener);
+        close();
+        openDocuments.clear();
+    }
+
+    /**
+     * Render thumbnails for pages {@code first..last} (clamped to the document)
+     * at the lowest priority, delivering each on the EDT as it becomes
+     * available. Supersedes the previous thumbnail request; pass the pages
+     * visible in the sidebar so they are rendered before anything else.
+     */
+    public void requestThumbnails(int first, int last, Consumer<Thumbnail> onThumbnail) {
+        long myEpoch = thumbnailEpoch.incrementAndGet();
+        PdfRenderPool pool = activePool;
+        String docId = currentDocumentId;
+        int lo = Math.max(0, first);
+        int hi = Math.min(currentPageCount - 1, last);
+        Set<Integer> greyPages = currentGreyPages;
+        wantedThumbnails = new PageRange(lo, hi);
+        if (pool == null || docId == null || lo > hi) return;
+        scheduler.submit(THUMBNAILS_KEY, Priority.THUMBNAIL, () ->
+                renderThumbnails(pool, docId, greyPages, lo, hi, myEpoch, onThumbnail));
+    }
+
+    /**
+     * Render the {@link #TILE_SIZE} tiles of a zoomed page that intersect
+     * {@code visible}, delivering each on the EDT as it becomes available:
+     * cached tiles first, then the rest in reading order as {@link Priority#REFINE}
+     * tasks, several at once when the pool allows. Only the tiles are ever
+     * rasterised, never the whole page at {@code dpi}. Supersedes the previous
+     * tile request but not page renders. Does nothing unless
+     * {@link #canRenderTiles()}.
+     *
+     * @param visible    area on screen, in pixels of the whole page at {@code dpi}
+     * @param pagePixels size of the whole page at {@code dpi}
+     */
+    public void renderTiles(int pageIndex, float dpi, Rectangle visible, Dimension pagePixels,
+                            Consumer<Tile> onTile) {
+        long myEpoch = tileEpoch.incrementAndGet();
+        PdfRenderPool pool = activePool;
+        String docId = currentDocumentId;
+        Rectangle page = new Rectangle(pagePixels);
+        Rectangle area = visible.intersection(page);
+        if (pool == null || docId == null || area.isEmpty() || !pool.supportsRegionRendering()) {
+            wantedTiles = Set.of();
+            return;
+        }
 
-        if (toClose != null) {
-            Thread.ofVirtual().name("pdf-close").start(toClose::closeDocument);
+        List<Rectangle> missing = new ArrayList<>();
+        Set<PdfPageCache.Key> wanted = new HashSet<>();
+        for (int row = area.y / TILE_SIZE; row * TILE_SIZE < area.y + area.height; row++) {
+            for (int col = area.x / TILE_SIZE; col * TILE_SIZE < area.x + area.width; col++) {
+                Rectangle bounds = new Rectangle(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE)
+                        .intersection(page);
+                PdfPageCache.Key key = tileKey(docId, pageIndex, dpi, bounds);
+                wanted.add(key);
+                BufferedImage cached = tileCache.get(key);
+                if (cached != null) deliverTile(docId, new Tile(pageIndex, dpi, bounds, cached), onTile);
+                else missing.add(bounds);
+            }
+        }
+        wantedTiles = wanted;
+        // Tiles still queued from an earlier request are replaced; off-screen ones see the new epoch and exit
+        for (Rectangle bounds : missing) {
+            PdfPageCache.Key key = tileKey(docId, pageIndex, dpi, bounds);
+            scheduler.submit(key, Priority.REFINE, () -> {
+                if (tileEpoch.get() != myEpoch) return;
+                BufferedImage img = tileCache.get(key);
+                if (img == null) img = renderTileInternal(pool, docId, pageIndex, dpi, bounds);
+                if (img != null) deliverTile(docId, new Tile(pageIndex, dpi, bounds, img), onTile);
+            });
         }
     }
 
+    /**
+     * True if the current document's backend can render zoom tiles. Without
+     * it, a zoomed page is drawn scaled up from the page image.
+     */
+    public boolean canRenderTiles() {
+        PdfRenderPool pool = activePool;
+        return pool != null && pool.supportsRegionRendering();
+    }
+
     public int getCurrentPageCount() {
         return currentPageCount;
     }
@@ -122,105 +466,171 @@ public class PdfRenderService {
     // ----------------------------------------------------- internal load flow
 
     private void doLoad(QuickViewItem item, long myEpoch,
+                        Consumer<PdfDocumentInfo> onInfo,
                         Consumer<RenderResult> onSuccess,
                         Consumer<String> onError) {
+        PdfSource source = null;
         try {
             log.info("Loading PDF: {}", item.name());
 
-            // Read bytes off EDT (may involve network/slow FS)
-            byte[] pdfBytes;
-            try (var in = item.openStream()) {
-                pdfBytes = in.readAllBytes();
-            }
-            if (requestEpoch.get() != myEpoch) return;
-
-            PdfRenderBackend backend = selectBackend();
-            PdfDocumentInfo info;
+            // Local files are read in place by the backend; anything else is
+            // downloaded off EDT (may involve network/slow FS)
+            Path localFile = localPath(item);
+            if (localFile != null) awaitWarmUp(localFile, myEpoch);
+            source = localFile != null
+                    ? PdfSource.ofFile(localFile)
+                    : download(item, myEpoch, onSuccess);
+            // Open local files are found by path; downloads by content, which is already in memory
+            String docId = localFile != null ? null : PdfDocumentId.of(source);
 
             backendLock.lock();
             try {
                 if (requestEpoch.get() != myEpoch) return; // superseded while waiting
-                closeCurrentBackendInternal();
-                info = backend.openDocument(pdfBytes);
-                String docId = computeDocId(item);
-                cache.invalidate(currentDocumentId);
-                activeBackend      = backend;
-                currentDocumentId  = docId;
-                currentDocumentInfo = info;
-                currentPageCount   = info.pageCount();
+                parkCurrentDocumentInternal();
+                // Viewed before, or opened ahead by warm-up
+                PdfOpenDocuments.Entry open = openDocuments.take(docId, localFile);
+                if (open != null) {
+                    log.debug("Reusing open document {}", item.name());
+                    docId = open.docId();
+                    activateInternal(docId, open.pool(), open.info(), open.file(), open.stamp(),
+                            open.firstPageSize());
+                } else {
+                    PdfOpenDocuments.Stamp stamp = localFile != null ? PdfOpenDocuments.Stamp.of(localFile) : null;
+                    // Hash the file while the backend parses it
+                    CompletableFuture<String> fingerprint = docId != null
+                            ? CompletableFuture.completedFuture(docId)
+                            : PdfDocumentId.ofAsync(source);
+                    PdfRenderBackend backend = selectBackend();
+                    PdfDocumentInfo info = backend.openDocument(source);
+                    docId = fingerprint(fingerprint);
+                    activateInternal(docId, new PdfRenderPool(backend, source, poolSize()), info,
+                            stamp != null ? localFile : null, stamp, null);
+                }
             } finally {
                 backendLock.unlock();
             }
 
             if (requestEpoch.get() != myEpoch) return;
 
-            // Render first page
-            BufferedImage firstPage = renderPageInternal(0, myEpoch);
-            if (requestEpoch.get() != myEpoch) return;
-
-            if (firstPage != null) {
-                SwingUtilities.invokeLater(() -> onSuccess.accept(new RenderResult(info, firstPage, 0)));
-            } else {
-                SwingUtilities.invokeLater(() -> onError.accept("Failed to render first page"));
-            }
+            // This task already runs at visible priority
+            showFirstPage(docId, new PageRequest(0, 1, myEpoch, onSuccess, onError,
+                    "Failed to render first page", false), onInfo);
+            if (localFile != null) scheduleWarmUp(localFile, myEpoch);
 
         } catch (PdfRenderBackend.EncryptedPdfException e) {
             if (requestEpoch.get() == myEpoch) {
                 SwingUtilities.invokeLater(() -> onError.accept("Encrypted PDF \u2013 cannot preview"));
             }
+        } catch (CancellationException e) {
+            log.debug("Load of {} superseded", item.name());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Failed to load PDF: {}", item.name(), e);
             if (requestEpoch.get() == myEpoch) {
-                fallbackLoad(item, myEpoch, onSuccess, onError);
+                fallbackLoad(item, source, myEpoch, onInfo, onSuccess, onError);
             }
         }
     }
 
-    /** Retry with PDFBox when an optional CLI backend fails. */
-    private void fallbackLoad(QuickViewItem item, long myEpoch,
+    /**
+     * Read a non-local item into memory. If the document is linearized, its
+     * first page is rendered from the start of the stream and shown as a
+     * preview while the rest is still arriving.
+     *
+     * @throws CancellationException if the load is superseded meanwhile
+     */
+    private PdfSource download(QuickViewItem item, long myEpoch, Consumer<RenderResult> onSuccess)
+            throws IOException, InterruptedException {
+        BooleanSupplier superseded = () -> requestEpoch.get() != myEpoch;
+        try (PdfDownload download = PdfDownload.start(item)) {
+            byte[] head = download.awaitPrefix(PdfLinearization.HEADER_BYTES, superseded);
+            PdfLinearization lin = PdfLinearization.parse(head, head.length);
+            if (lin != null && !download.isDone()) {
+                byte[] firstPage = download.awaitPrefix(lin.firstPageEnd(), superseded);
+                if (!download.isDone()) showStreamingPreview(item, firstPage, lin, myEpoch, onSuccess);
+            }
+            return PdfSource.ofBytes(download.awaitAll(superseded));
+        }
+    }
+
+    /**
+     * Deliver the first page rendered from {@code prefix} alone as a preview.
+     * It carries no document info, so the panel keeps navigation disabled
+     * until the document is open. Failures only cost the preview.
+     */
+    private void showStreamingPreview(QuickViewItem item, byte[] prefix, PdfLinearization lin, long myEpoch,
+                                      Consumer<RenderResult> onSuccess) {
+        try {
+            // Viewport target, as for the page once the whole document is open
+            AtomicReference<RenderTarget> target = new AtomicReference<>();
+            BufferedImage img = PdfboxBackend.renderFirstPage(prefix, lin, size -> {
+                target.set(targetFor(size));
+                return target.get().dpi();
+            });
+            if (requestEpoch.get() != myEpoch) return;
+            log.debug("Rendered first page of {} from the first {} bytes", item.name(), prefix.length);
+            RenderResult result = new RenderResult(null, img, 0, target.get().dpi(),
+                    target.get().displayScale(), true);
+            streamedPreviewEpoch = myEpoch;
+            SwingUtilities.invokeLater(() -> {
+                if (requestEpoch.get() == myEpoch) onSuccess.accept(result);
+            });
+        } catch (Exception e) {
+            log.debug("First page of {} not renderable before download completes: {}",
+                    item.name(), e.getMessage());
+        }
+    }
+
+    /** Result of {@link PdfDocumentId#ofAsync}, with the read failure rethrown as such. */
+    private static String fingerprint(CompletableFuture<String> id) throws IOException, InterruptedException {
+        try {
+            return id.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw new IOException("Cannot fingerprint document", e.getCause());
+        }
+    }
+
+    /**
+     * Retry with PDFBox when an optional CLI backend fails, on the
+     * {@code source} {@link #doLoad} already read; null if it failed before
+     * that, in which case there is nothing to retry.
+     */
+    private void fallbackLoad(QuickViewItem item, PdfSource source, long myEpoch,
+                              Consumer<PdfDocumentInfo> onInfo,
                               Consumer<RenderResult> onSuccess,
                               Consumer<String> onError) {
-        if (activeBackend instanceof PdfboxBackend) {
-            // Already using PDFBox — nothing to fall back to
+        PdfRenderPool pool = activePool;
+        if (source == null || (pool != null && pool.backendType() == PdfboxBackend.class)) {
+            // Not read at all, or already using PDFBox — nothing to fall back to
             SwingUtilities.invokeLater(() -> onError.accept("Cannot render PDF"));
             return;
         }
         log.warn("Primary backend failed; falling back to PDFBox for {}", item.name());
         try {
-            byte[] pdfBytes;
-            try (var in = item.openStream()) {
-                pdfBytes = in.readAllBytes();
-            }
+            String docId = PdfDocumentId.of(source);
             if (requestEpoch.get() != myEpoch) return;
 
             PdfboxBackend fallback = new PdfboxBackend();
-            PdfDocumentInfo info;
+            Path localFile = source.file();
+            PdfOpenDocuments.Stamp stamp = localFile != null ? PdfOpenDocuments.Stamp.of(localFile) : null;
 
             backendLock.lock();
             try {
                 if (requestEpoch.get() != myEpoch) return;
-                closeCurrentBackendInternal();
-                info = fallback.openDocument(pdfBytes);
-                String docId = computeDocId(item);
-                cache.invalidate(currentDocumentId);
-                activeBackend      = fallback;
-                currentDocumentId  = docId;
-                currentDocumentInfo = info;
-                currentPageCount   = info.pageCount();
+                parkCurrentDocumentInternal();
+                PdfDocumentInfo info = fallback.openDocument(source);
+                activateInternal(docId, new PdfRenderPool(fallback, source, poolSize()), info,
+                        stamp != null ? localFile : null, stamp, null);
             } finally {
                 backendLock.unlock();
             }
 
             if (requestEpoch.get() != myEpoch) return;
 
-            BufferedImage firstPage = renderPageInternal(0, myEpoch);
-            if (requestEpoch.get() != myEpoch) return;
-
-            if (firstPage != null) {
-                SwingUtilities.invokeLater(() -> onSuccess.accept(new RenderResult(info, firstPage, 0)));
-            } else {
-                SwingUtilities.invokeLater(() -> onError.accept("Failed to render PDF"));
-            }
+            showFirstPage(docId, new PageRequest(0, 1, myEpoch, onSuccess, onError,
+                    "Failed to render PDF", false), onInfo);
 
         } catch (PdfRenderBackend.EncryptedPdfException e) {
             if (requestEpoch.get() == myEpoch) {
@@ -236,15 +646,436 @@ public class PdfRenderService {
 
     // -------------------------------------------------- internal render
 
+    /**
+     * Report the freshly opened document, show its first page, then read the
+     * metadata the backend skipped while opening. The page count reaches the
+     * panel before any page is rendered.
+     */
+    private void showFirstPage(String docId, PageRequest request, Consumer<PdfDocumentInfo> onInfo) {
+        deliverInfo(docId, currentDocumentInfo, onInfo);
+        showPage(request);
+        if (requestEpoch.get() != request.epoch()) return;
+
+        PdfRenderPool pool = activePool;
+        if (pool == null) return;
+        scheduler.submit(METADATA_KEY, Priority.METADATA, () -> {
+            // Background work: only an idle renderer, never a new one or a wait behind page renders
+            PdfRenderBackend backend = acquireIdle(pool, () -> !docId.equals(currentDocumentId));
+            if (backend == null) return;
+            try {
+                PdfDocumentInfo info = currentDocumentInfo;
+                if (info == null || !docId.equals(currentDocumentId)) return;
+                PdfDocumentInfo full = backend.readMetadata(info);
+                if (full.equals(info)) return;
+                // Updated under the lock so a concurrent load is never overwritten
+                backendLock.lock();
+                try {
+                    if (!docId.equals(currentDocumentId)) return;
+                    currentDocumentInfo = full;
+                } finally {
+                    backendLock.unlock();
+                }
+                deliverInfo(docId, full, onInfo);
+            } catch (Exception e) {
+                log.debug("Metadata of {} unavailable: {}", docId, e.getMessage());
+            } finally {
+                pool.release(backend);
+            }
+        });
+    }
+
+    private void deliverInfo(String docId, PdfDocumentInfo info, Consumer<PdfDocumentInfo> onInfo) {
+        SwingUtilities.invokeLater(() -> {
+            if (docId.equals(currentDocumentId)) onInfo.accept(info);
+        });
+    }
+
+    /**
+     * Give memory back under heap pressure, most speculative first: queued
+     * prefetch and warm-up work is dropped and none is started for
+     * {@link #SHED_COOLDOWN_MS}, and half of the cached pages and all but the
+     * newest zoom tile are evicted. Under critical pressure the page cache
+     * keeps only the most recent page, thumbnails and the documents held open
+     * off screen are released, and the current render pool shrinks to one
+     * instance. Runs on the JMX notification thread.
+     */
+    private void shedMemory(PdfMemoryGuard.Pressure pressure) {
+        boolean critical = pressure == PdfMemoryGuard.Pressure.CRITICAL;
+        shedUntil = System.currentTimeMillis() + SHED_COOLDOWN_MS;
+        int tasks = scheduler.cancelQueued(EnumSet.of(Priority.PREFETCH, Priority.WARM_UP));
+
+        long before     = cache.sizeBytes() + tileCache.sizeBytes() + thumbnailCache.sizeBytes();
+        int  pages      = cache.trimTo(critical ? 0 : cache.sizeBytes() / 2);
+        int  tiles      = tileCache.trimTo(0);
+        int  thumbnails = critical ? thumbnailCache.trimTo(0) : 0;
+        int  documents  = critical ? openDocuments.clear("heap pressure") : 0;
+        PdfRenderPool pool = activePool;
+        if (critical && pool != null) pool.trimIdle(1);
+        long freed = before - (cache.sizeBytes() + tileCache.sizeBytes() + thumbnailCache.sizeBytes());
+
+        log.info("Shed under {} heap pressure: {} pages, {} tiles, {} thumbnails ({} MB), "
+                 + "{} open documents, {} queued tasks",
+                pressure, pages, tiles, thumbnails, freed >> 20, documents, tasks);
+    }
+
+    private boolean isShedding() {
+        return System.currentTimeMillis() < shedUntil;
+    }
+
+    /**
+     * Speculatively render the neighbours of {@code pageIndex} into the cache:
+     * up to {@code pdf.quickView.prefetchPages} pages ahead in the direction of
+     * travel, then one page behind. Stops at the first epoch change.
+     */
+    private void schedulePrefetch(int pageIndex, int direction, long myEpoch) {
+        int depth = settings.getPrefetchPages();
+        if (depth <= 0 || isShedding()) return;
+
+        scheduler.submit(PREFETCH_KEY, Priority.PREFETCH, () -> {
+            prefetchAhead(pageIndex, direction, depth, myEpoch);
+            int behind = pageIndex - direction;
+            if (requestEpoch.get() == myEpoch && behind >= 0 && behind < currentPageCount) {
+                renderPageInternal(behind, targetFor(behind, true).dpi(), myEpoch, true, false);
+            }
+        });
+    }
+
+    /**
+     * Open the PDFs next to {@code file} in its directory and render their
+     * first pages into the cache, so selecting one of them is instant: up to
+     * {@code pdf.quickView.warmUpFiles} files ahead in the direction of travel,
+     * then one behind. Stops at the first epoch change, including a render in progress.
+     */
+    private void scheduleWarmUp(Path file, long myEpoch) {
+        Path previous = lastLoadedFile;
+        lastLoadedFile = file;
+        int ahead = settings.getWarmUpFiles();
+        Path dir = file.getParent();
+        if (ahead <= 0 || dir == null || isShedding()) return;
+
+        scheduler.submit(WARM_UP_KEY, Priority.WARM_UP, () -> {
+            List<Path> pdfs = listPdfs(dir);
+            int index = pdfs.indexOf(file);
+            if (index < 0) return;
+            int direction = previous != null && pdfs.indexOf(previous) > index ? -1 : 1;
+
+            List<Integer> targets = new ArrayList<>();
+            for (int i = 1; i <= ahead; i++) targets.add(index + direction * i);
+            targets.add(index - direction);
+
+            for (int target : targets) {
+                if (requestEpoch.get() != myEpoch) return;
+                if (target < 0 || target >= pdfs.size()) continue;
+                if (!openDocuments.containsFile(pdfs.get(target))) warmUp(pdfs.get(target), myEpoch);
+            }
+        });
+    }
+
+    /**
+     * Open {@code file}, render its first page into both cache tiers and hold it open.
+     * The render stops at the next epoch change; the parsed document is kept
+     * all the same, since a load of this very file waits for it in {@link #awaitWarmUp}.
+     */
+    private void warmUp(Path file, long myEpoch) {
+        PdfOpenDocuments.Stamp stamp = PdfOpenDocuments.Stamp.of(file);
+        if (stamp == null || file.equals(currentFile)) return;
+        WarmUp running = new WarmUp(file.toAbsolutePath().normalize(), new CompletableFuture<>());
+        warmingUp.set(running);
+        PdfSource source = PdfSource.ofFile(file);
+        PdfRenderBackend backend = selectBackend();
+        try {
+            String docId = PdfDocumentId.of(source);
+            PdfDocumentInfo info = backend.openDocument(source);
+            PdfRenderPool pool = new PdfRenderPool(backend, source, poolSize());
+            PdfRenderBackend.PageSize size = backend.pageSize(0);
+            float dpi = targetFor(size).dpi();
+
+            PdfPageCache.Key key = new PdfPageCache.Key(docId, 0, dpi);
+            try {
+                if (!hasCached(docId, 0, dpi, pool)) {
+                    BufferedImage img = backend.renderPage(0, dpi, () -> requestEpoch.get() != myEpoch);
+                    cache.put(key, img);
+                    diskCache.putAsync(docId, 0, dpi, pool.backendName(), img);
+                }
+            } catch (CancellationException e) {
+                log.debug("Warm-up render of {} cancelled; keeping it open", file.getFileName());
+            }
+            openDocuments.put(new PdfOpenDocuments.Entry(docId, file, stamp, pool, info, size));
+            log.debug("Warmed up {}", file.getFileName());
+        } catch (Exception e) {
+            backend.closeDocument();
+            log.debug("Warm-up of {} failed: {}", file.getFileName(), e.getMessage());
+        } finally {
+            warmingUp.compareAndSet(running, null);
+            running.done().complete(null);
+        }
+    }
+
+    /**
+     * If {@code file} is being warmed up, wait until it is done, so the load
+     * takes over the open document instead of parsing the file a second time.
+     * Returns at once otherwise; throws CancellationException if superseded meanwhile.
+     */
+    private void awaitWarmUp(Path file, long myEpoch) throws InterruptedException {
+        WarmUp running = warmingUp.get();
+        if (running == null || !running.file().equals(file.toAbsolutePath().normalize())) return;
+        log.debug("Waiting for warm-up of {}", file.getFileName());
+        while (true) {
+            if (requestEpoch.get() != myEpoch) throw new CancellationException("Load superseded");
+            try {
+                running.done().get(IDLE_RETRY_MS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // still opening; check the epoch again
+            } catch (ExecutionException e) {
+                return; // never completed exceptionally
+            }
+        }
+    }
+
+    /**
+     * PDF files in {@code dir} sorted by name, the order a file manager lists
+     * them in by default. Cached until the directory is modified.
+     */
+    private List<Path> listPdfs(Path dir) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(dir);
+            DirectoryListing cached = directoryListing;
+            if (cached != null && cached.dir().equals(dir) && cached.modified().equals(modified)) {
+                return cached.pdfs();
+            }
+            List<Path> pdfs;
+            try (Stream<Path> files = Files.list(dir)) {
+                pdfs = files.filter(f -> f.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                            .filter(Files::isRegularFile)
+                            .sorted(Comparator.comparing(f -> f.getFileName().toString(),
+                                                         String.CASE_INSENSITIVE_ORDER))
+                            .toList();
+            }
+            directoryListing = new DirectoryListing(dir, modified, pdfs);
+            return pdfs;
+        } catch (IOException e) {
+            log.debug("Cannot list {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Backends that batch (CLI tools) render one range starting at the first
+     * page in the window that is not cached yet and ending at the window's
+     * end or after the backend's preferred batch, whichever comes first, so
+     * process start and parse are paid once per batch rather than once per
+     * page turn. Other backends render page by page.
+     */
+    private void prefetchAhead(int pageIndex, int direction, int depth, long myEpoch) {
+        PdfRenderPool pool = activePool;
+        String docId = currentDocumentId;
+        if (pool == null || docId == null) return;
+        int pageCount = currentPageCount;
+        int batch     = pool.preferredBatchSize();
+
+        for (int i = 1; i <= depth; i++) {
+            if (requestEpoch.get() != myEpoch) return;
+            int page = pageIndex + direction * i;
+            if (page < 0 || page >= pageCount) return;
+            float dpi = targetFor(page, true).dpi();
+            if (batch <= 1) {
+                if (renderPageInternal(page, dpi, myEpoch, true, false) != null) log.debug("Prefetched page {}", page);
+                continue;
+            }
+            if (hasCached(docId, page, dpi, pool)) continue;
+
+            int far = page + direction * (Math.min(batch, depth - i + 1) - 1);
+            int lo  = Math.max(0, Math.min(page, far));
+            int hi  = Math.min(pageCount - 1, Math.max(page, far));
+            renderRangeInternal(pool, docId, lo, hi, dpi, myEpoch);
+            return;
+        }
+    }
+
+    /**
+     * Render pages {@code lo..hi} with one backend call into both cache tiers.
+     * The whole range uses one DPI; documents rarely mix page sizes.
+     */
+    private void renderRangeInternal(PdfRenderPool pool, String docId, int lo, int hi, float dpi, long myEpoch) {
+        PdfRenderBackend backend;
+        try {
+            backend = pool.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (backend == null) return;
+
+        try {
+            if (requestEpoch.get() != myEpoch) return;
+            List<BufferedImage> images = backend.renderPages(lo, hi, dpi, pageCancellation(pool, lo, hi, myEpoch));
+            for (int i = 0; i < images.size(); i++) {
+                int page = lo + i;
+                cache.put(new PdfPageCache.Key(docId, page, dpi), images.get(i));
+                diskCache.putAsync(docId, page, dpi, pool.backendName(), images.get(i));
+            }
+            log.debug("Prefetched pages {}-{} in one batch", lo, hi);
+        } catch (CancellationException e) {
+            log.debug("Batch prefetch of pages {}-{} cancelled", lo, hi);
+        } catch (Exception e) {
+            log.warn("Batch prefetch of pages {}-{} failed: {}", lo, hi, e.getMessage());
+        } finally {
+            pool.release(backend);
+        }
+    }
+
+    /**
+     * Cancellation token for rendering pages {@code lo..hi}: true once the
+     * document has closed, or a newer page request has moved to a page
+     * outside the range. A prefetch of the page the user has just turned to
+     * keeps running.
+     */
+    private BooleanSupplier pageCancellation(PdfRenderPool pool, int lo, int hi, long myEpoch) {
+        return () -> activePool != pool
+                || (requestEpoch.get() != myEpoch && (lastRequestedPage < lo || lastRequestedPage > hi));
+    }
+
+    /** Memory cache, then disk cache (promoting hits into memory); null on a miss. */
+    private BufferedImage lookupCached(String docId, int pageIndex, float dpi, PdfRenderPool pool) {
+        PdfPageCache.Key key = new PdfPageCache.Key(docId, pageIndex, dpi);
+        BufferedImage cached = cache.get(key);
+        if (cached != null) return cached;
+        BufferedImage stored = diskCache.get(docId, pageIndex, dpi, pool.backendName());
+        if (stored != null) {
+            log.debug("Disk cache hit: page {} of {}", pageIndex, docId);
+            cache.put(key, stored);
+        }
+        return stored;
+    }
+
+    /** Like {@link #lookupCached}, without decompressing a memory hit. */
+    private boolean hasCached(String docId, int pageIndex, float dpi, PdfRenderPool pool) {
+        return cache.contains(new PdfPageCache.Key(docId, pageIndex, dpi))
+                || lookupCached(docId, pageIndex, dpi, pool) != null;
+    }
+
+    /**
+     * Show a page the user is waiting for; runs as a {@link Priority#VISIBLE}
+     * task. On a cache miss with progressive rendering enabled, a cheap
+     * {@link #PREVIEW_DPI} pass is delivered here and the full-quality page is
+     * queued as {@link Priority#REFINE}, so a newer page request can overtake
+     * it. Otherwise the full page is rendered straight away.
+     */
+    private void showPage(PageRequest request) {
+        RenderTarget target = targetFor(request.pageIndex(), false);
+        float dpi = target.dpi();
+        if (settings.isProgressive() && !request.keepCurrent() && dpi >= PREVIEW_DPI * 2
+                && streamedPreviewEpoch != request.epoch()
+                && !isCached(request.pageIndex(), dpi)) {
+            BufferedImage preview = renderPageInternal(request.pageIndex(), PREVIEW_DPI, request.epoch(),
+                    false, true);
+            if (requestEpoch.get() != request.epoch()) return;
+            if (preview != null) {
+                double scale = target.displayScale() * dpi / PREVIEW_DPI;
+                RenderResult result = new RenderResult(currentDocumentInfo, preview, request.pageIndex(),
+                        dpi, scale, true);
+                SwingUtilities.invokeLater(() -> request.onSuccess().accept(result));
+                scheduler.submit(REFINE_KEY, Priority.REFINE, () -> finishPage(request, target));
+                return;
+            }
+        }
+        finishPage(request, target);
+    }
+
+    /** Render the full-quality page, deliver it, then prefetch its neighbours. */
+    private void finishPage(PageRequest request, RenderTarget target) {
+        BufferedImage img = renderPageInternal(request.pageIndex(), target.dpi(), request.epoch(), false, false);
+        if (requestEpoch.get() != request.epoch()) return;
+        if (img != null) {
+            RenderResult result = new RenderResult(currentDocumentInfo, img, request.pageIndex(),
+                    target.dpi(), target.displayScale(), false);
+            SwingUtilities.invokeLater(() -> request.onSuccess().accept(result));
+            schedulePrefetch(request.pageIndex(), request.direction(), request.epoch());
+        } else {
+            SwingUtilities.invokeLater(() -> request.onError().accept(request.failure()));
+        }
+    }
+
+    /**
+     * Pick the resolution for {@code pageIndex}. With auto DPI the page is
+     * rendered at the size that fits the viewport in device pixels, capped at
+     * the configured DPI; otherwise, or while the viewport or page size is
+     * unknown, at the configured DPI.
+     *
+     * @param background true on prefetch paths: an unknown page size is only
+     *                   read if a renderer is idle, never by waiting for one
+     */
+    private RenderTarget targetFor(int pageIndex, boolean background) {
+        boolean fit = settings.isAutoDpi() && viewportWidth > 0 && viewportHeight > 0;
+        return targetFor(fit ? pageSize(pageIndex, background) : null);
+    }
+
+    /** {@link #targetFor(int, boolean)} for a page of {@code size}; null means unknown. */
+    private RenderTarget targetFor(PdfRenderBackend.PageSize size) {
+        float maxDpi = settings.getDpi();
+        int    w     = viewportWidth;
+        int    h     = viewportHeight;
+        double scale = viewportScale;
+        if (!settings.isAutoDpi() || w <= 0 || h <= 0) return new RenderTarget(maxDpi, 1.0);
+        if (size == null || size.width() <= 0 || size.height() <= 0) return new RenderTarget(maxDpi, 1.0);
+
+        double fit   = Math.min(w / size.width(), h / size.height()) * 72 * scale;
+        float  dpi   = (float) (Math.floor(fit / AUTO_DPI_STEP) * AUTO_DPI_STEP);
+        return new RenderTarget(Math.max(AUTO_DPI_STEP, Math.min(maxDpi, dpi)), 1.0 / scale);
+    }
+
+    /**
+     * Page size from the current document, cached per page. Returns
+     * {@link #UNKNOWN_PAGE_SIZE} if the backend cannot tell, null on failure
+     * or, for {@code background} callers, when no renderer is idle.
+     */
+    private PdfRenderBackend.PageSize pageSize(int pageIndex, boolean background) {
+        Map<Integer, PdfRenderBackend.PageSize> sizes = currentPageSizes;
+        PdfRenderBackend.PageSize known = sizes.get(pageIndex);
+        if (known != null) return known;
+
+        PdfRenderPool pool = activePool;
+        if (pool == null) return null;
+        PdfRenderBackend backend;
+        try {
+            backend = background ? pool.tryAcquire() : pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (backend == null) return null;
+        try {
+            PdfRenderBackend.PageSize size = backend.pageSize(pageIndex);
+            if (size == null) size = UNKNOWN_PAGE_SIZE;
+            sizes.put(pageIndex, size);
+            return size;
+        } catch (Exception e) {
+            log.debug("Page size of page {} unavailable: {}", pageIndex, e.getMessage());
+            return null;
+        } finally {
+            pool.release(backend);
+        }
+    }
+
+    private boolean isCached(int pageIndex, float dpi) {
+        PdfRenderPool pool = activePool;
+        String docId = currentDocumentId;
+        return pool != null && docId != null && hasCached(docId, pageIndex, dpi, pool);
+    }
+
     /**
      * Render a page, checking cache first. Returns null if the request is stale
-     * or the backend is unavailable.
+     * or the backend is unavailable. Background renders never wait for a busy
+     * pool; they return null instead. Progressive previews ({@code preview})
+     * are not written to the disk tier and tell which pages are grey.
      */
-    private BufferedImage renderPageInternal(int pageIndex, long myEpoch) {
+    private BufferedImage renderPageInternal(int pageIndex, float dpi, long myEpoch, boolean background,
+                                             boolean preview) {
         String docId = currentDocumentId;
+        Set<Integer> greyPages = currentGreyPages;
         if (docId == null) return null;
 
-        float dpi = settings.getDpi();
         PdfPageCache.Key key = new PdfPageCache.Key(docId, pageIndex, dpi);
 
         // Cache lookup (no lock needed — PdfPageCache is internally synchronised)
@@ -256,31 +1087,199 @@ public class PdfRenderService {
 
         if (requestEpoch.get() != myEpoch) return null;
 
-        backendLock.lock();
+        PdfRenderPool pool = activePool;
+        if (pool == null) return null;
+
+        BufferedImage stored = lookupCached(docId, pageIndex, dpi, pool);
+        if (stored != null) return stored;
+
+        PdfRenderBackend backend;
+        try {
+            backend = background ? pool.tryAcquire() : pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (backend == null) return null; // document closed, or pool busy for background work
+
         try {
             if (requestEpoch.get() != myEpoch) return null;
-            if (activeBackend == null) return null;
+            // Rendered by another task while this one waited for the pool
+            BufferedImage raced = cache.get(key);
+            if (raced != null) return raced;
 
-            BufferedImage img = activeBackend.renderPage(pageIndex, dpi);
+            BooleanSupplier cancelled = pageCancellation(pool, pageIndex, pageIndex, myEpoch);
+            boolean grey = !preview && settings.isGreyPages() && greyPages.contains(pageIndex);
+            BufferedImage img = grey
+                    ? backend.renderGreyPage(pageIndex, dpi, cancelled)
+                    : backend.renderPage(pageIndex, dpi, cancelled);
+            if (preview && PdfPageCache.isGrey(img)) greyPages.add(pageIndex);
             cache.put(key, img);
+            if (!preview) {
+                diskCache.putAsync(docId, pageIndex, dpi, pool.backendName(), img);
+            }
             return img;
+        } catch (CancellationException e) {
+            log.debug("Render of page {} cancelled", pageIndex);
+            return null;
         } catch (Exception e) {
             log.error("Error rendering page {}", pageIndex, e);
             return null;
         } finally {
-            backendLock.unlock();
+            pool.release(backend);
         }
     }
 
+    /**
+     * Deliver cached thumbnails and render the rest in batches of the pool's
+     * preferred size, so CLI backends pay one process per batch.
+     */
+    private void renderThumbnails(PdfRenderPool pool, String docId, Set<Integer> greyPages,
+                                  int lo, int hi, long myEpoch,
+                                  Consumer<Thumbnail> onThumbnail) {
+        int page = lo;
+        while (page <= hi) {
+            if (thumbnailEpoch.get() != myEpoch) return;
+            BufferedImage cached = thumbnailCache.get(new PdfPageCache.Key(docId, page, THUMBNAIL_DPI));
+            if (cached != null) {
+                deliverThumbnail(docId, new Thumbnail(page, cached), onThumbnail);
+                page++;
+                continue;
+            }
+
+            int end = page;
+            while (end < hi && end - page + 1 < pool.preferredBatchSize()
+                    && !thumbnailCache.contains(new PdfPageCache.Key(docId, end + 1, THUMBNAIL_DPI))) {
+                end++;
+            }
+            PdfRenderBackend backend = acquireIdle(pool, () -> thumbnailEpoch.get() != myEpoch);
+            if (backend == null) return;
+            try {
+                int from = page, to = end;
+                List<BufferedImage> images = backend.renderPages(page, end, THUMBNAIL_DPI,
+                        () -> activePool != pool || !wantedThumbnails.overlaps(from, to));
+                for (int i = 0; i < images.size(); i++) {
+                    thumbnailCache.put(new PdfPageCache.Key(docId, page + i, THUMBNAIL_DPI), images.get(i));
+                    if (PdfPageCache.isGrey(images.get(i))) greyPages.add(page + i);
+                    deliverThumbnail(docId, new Thumbnail(page + i, images.get(i)), onThumbnail);
+                }
+            } catch (CancellationException e) {
+                log.debug("Thumbnails {}-{} cancelled", page, end);
+                return;
+            } catch (Exception e) {
+                log.debug("Thumbnails {}-{} failed: {}", page, end, e.getMessage());
+            } finally {
+                pool.release(backend);
+            }
+            page = end + 1;
+        }
+    }
+
+    /**
+     * Borrow a renderer without ever queueing behind page renders: poll the
+     * pool until one is idle. Null once {@code stale} returns true or the
+     * document has been closed.
+     */
+    private PdfRenderBackend acquireIdle(PdfRenderPool pool, BooleanSupplier stale) {
+        try {
+            while (!stale.getAsBoolean() && activePool == pool) {
+                PdfRenderBackend backend = pool.tryAcquire();
+                if (backend != null) return backend;
+                Thread.sleep(IDLE_RETRY_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void deliverThumbnail(String docId, Thumbnail thumbnail, Consumer<Thumbnail> onThumbnail) {
+        SwingUtilities.invokeLater(() -> {
+            if (docId.equals(currentDocumentId)) onThumbnail.accept(thumbnail);
+        });
+    }
+
+    private static PdfPageCache.Key tileKey(String docId, int pageIndex, float dpi, Rectangle bounds) {
+        return new PdfPageCache.Key(docId, pageIndex, dpi, bounds.x / TILE_SIZE, bounds.y / TILE_SIZE);
+    }
+
+    /** Render one zoom tile into the tile cache; null if the document closed or rendering failed. */
+    private BufferedImage renderTileInternal(PdfRenderPool pool, String docId, int pageIndex, float dpi,
+                                             Rectangle bounds) {
+        PdfRenderBackend backend;
+        try {
+            backend = pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (backend == null) return null;
+        PdfPageCache.Key key = tileKey(docId, pageIndex, dpi, bounds);
+        try {
+            RegionRenderer regions = backend.regionRenderer().orElse(null);
+            if (regions == null) return null; // the page is drawn scaled up instead
+            BufferedImage img = regions.renderRegion(pageIndex, dpi, bounds,
+                    () -> !wantedTiles.contains(key));
+            tileCache.put(key, img);
+            return img;
+        } catch (CancellationException e) {
+            log.debug("Tile {} of page {} cancelled", bounds, pageIndex);
+            return null;
+        } catch (Exception e) {
+            log.error("Error rendering tile {} of page {}", bounds, pageIndex, e);
+            return null;
+        } finally {
+            pool.release(backend);
+        }
+    }
+
+    /** Hand a tile to the panel unless another document has been opened meanwhile. */
+    private void deliverTile(String docId, Tile tile, Consumer<Tile> onTile) {
+        SwingUtilities.invokeLater(() -> {
+            if (docId.equals(currentDocumentId)) onTile.accept(tile);
+        });
+    }
+
     // ---------------------------------------------------------------- helpers
 
-    /** Must be called with backendLock held. */
-    private void closeCurrentBackendInternal() {
-        if (activeBackend != null) {
-            try { activeBackend.closeDocument(); }
-            catch (Exception e) { log.warn("Error closing backend", e); }
-            activeBackend = null;
+    /**
+     * Move the current document into the open-document LRU and clear the
+     * current-document state. Must be called with backendLock held.
+     */
+    private void parkCurrentDocumentInternal() {
+        if (activePool != null) {
+            PdfRenderBackend.PageSize first = currentPageSizes.get(0);
+            openDocuments.put(new PdfOpenDocuments.Entry(currentDocumentId, currentFile, currentStamp,
+                    activePool, currentDocumentInfo, first != UNKNOWN_PAGE_SIZE ? first : null));
         }
+        activePool          = null;
+        currentDocumentId   = null;
+        currentDocumentInfo = null;
+        currentPageCount    = 0;
+        currentFile         = null;
+        currentStamp        = null;
+    }
+
+    /** Make an open document current. Must be called with backendLock held. */
+    private void activateInternal(String docId, PdfRenderPool pool, PdfDocumentInfo info,
+                                  Path file, PdfOpenDocuments.Stamp stamp,
+                                  PdfRenderBackend.PageSize firstPageSize) {
+        Map<Integer, PdfRenderBackend.PageSize> sizes = new ConcurrentHashMap<>();
+        if (firstPageSize != null) sizes.put(0, firstPageSize);
+        activePool          = pool;
+        currentDocumentId   = docId;
+        currentDocumentInfo = info;
+        currentPageCount    = info.pageCount();
+        currentPageSizes    = sizes;
+        currentGreyPages    = ConcurrentHashMap.newKeySet();
+        currentFile         = file;
+        currentStamp        = stamp;
+        lastRequestedPage   = 0;
+    }
+
+    private int poolSize() {
+        int configured = settings.getRenderThreads();
+        return configured > 0 ? configured : PdfRenderPool.defaultSize();
     }
 
     private PdfRenderBackend selectBackend() {
@@ -306,7 +1305,29 @@ public class PdfRenderService {
         };
     }
 
-    private static String computeDocId(QuickViewItem item) {
-        return item.name() + ":" + item.sizeBytes();
+    /**
+     * Resolve the regular file on the default file system that backs {@code item},
+     * or null for archive entries, remote streams, and other non-file sources.
+     * The SDK item interface does not expose a path, so file-backed items are
+     * recognised by the accessor {@link #PATH_ACCESSORS} finds on their class.
+     */
+    static Path localPath(QuickViewItem item) {
+        Method accessor = PATH_ACCESSORS.get(item.getClass()).orElse(null);
+        if (accessor == null) return null;
+        Object value;
+        try {
+            value = accessor.invoke(item);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            log.debug("Cannot get the path of {} via {}(): {}", item.name(), accessor.getName(),
+                    e instanceof InvocationTargetException t ? t.getCause() : e);
+            return null;
+        }
+        Path path = value instanceof File f ? f.toPath() : (Path) value;
+        if (path != null
+                && path.getFileSystem() == FileSystems.getDefault()
+                && Files.isRegularFile(path)) {
+            return path;
+        }
+        return null; // an archive entry or a file that is gone
     }
 }
@@ -20,19 +20,53 @@ public final class PdfSettings {
 
     public static final String KEY_DPI              = "pdf.quickView.dpi";
     public static final String KEY_CACHE_PAGES      = "pdf.quickView.cachePages";
+    public static final String KEY_CACHE_MEGABYTES  = "pdf.quickView.cacheMegabytes";
+    public static final String KEY_DISK_CACHE_MEGABYTES = "pdf.quickView.diskCacheMegabytes";
     public static final String KEY_SHOW_INFO_OVERLAY = "pdf.quickView.showInfoOverlay";
     public static final String KEY_BACKEND          = "pdf.quickView.backend";
+    public static final String KEY_RENDER_THREADS   = "pdf.quickView.renderThreads";
+    public static final String KEY_PREFETCH_PAGES   = "pdf.quickView.prefetchPages";
+    public static final String KEY_PROGRESSIVE      = "pdf.quickView.progressive";
+    public static final String KEY_AUTO_DPI         = "pdf.quickView.autoDpi";
+    public static final String KEY_SHOW_THUMBNAILS  = "pdf.quickView.showThumbnails";
+    public static final String KEY_WARM_UP_FILES    = "pdf.quickView.warmUpFiles";
+    public static final String KEY_OPEN_DOCUMENTS   = "pdf.quickView.openDocuments";
+    public static final String KEY_CACHE_FORMAT     = "pdf.quickView.cacheFormat";
+    public static final String KEY_GREY_PAGES       = "pdf.quickView.greyPages";
 
     public enum Backend {
         PDFBOX, AUTO, CLI_MuTool, CLI_POPPLER, CLI_GS
     }
 
+    /** How {@link PdfPageCache} holds rendered pages in memory. */
+    public enum CacheFormat {
+        /** As rendered, usually 4 bytes per pixel. */
+        RGB,
+        /** 3 bytes per pixel, 1 for pages without colour. */
+        COMPACT,
+        /** {@link #COMPACT}, Deflate-compressed and decompressed on every hit. */
+        COMPRESSED
+    }
+
     private static final int     DEFAULT_DPI           = 144;
     private static final int     MAX_DPI               = 200;
     private static final int     MIN_DPI               = 36;
-    private static final int     DEFAULT_CACHE_PAGES   = 10;
+    /** 0 = no page limit; the cache is bounded by {@link #DEFAULT_CACHE_MEGABYTES}. */
+    private static final int     DEFAULT_CACHE_PAGES   = 0;
+    private static final int     DEFAULT_CACHE_MEGABYTES = 256;
+    private static final int     DEFAULT_DISK_CACHE_MEGABYTES = 512;
     private static final boolean DEFAULT_SHOW_OVERLAY  = true;
     private static final Backend DEFAULT_BACKEND       = Backend.PDFBOX;
+    /** 0 = one per core, bounded by available heap. */
+    private static final int     DEFAULT_RENDER_THREADS = 0;
+    private static final int     DEFAULT_PREFETCH_PAGES = 2;
+    private static final boolean DEFAULT_PROGRESSIVE    = true;
+    private static final boolean DEFAULT_AUTO_DPI       = true;
+    private static final boolean DEFAULT_SHOW_THUMBNAILS = true;
+    private static final int     DEFAULT_WARM_UP_FILES  = 2;
+    private static final int     DEFAULT_OPEN_DOCUMENTS = 4;
+    private static final CacheFormat DEFAULT_CACHE_FORMAT = CacheFormat.COMPACT;
+    private static final boolean DEFAULT_GREY_PAGES     = true;
 
     private static final PdfSettings INSTANCE = new PdfSettings();
 
@@ -65,10 +99,55 @@ public final class PdfSettings {
         }
     }
 
+    /** Raster memory budget of the page cache, in megabytes (at least 1). */
+    public int getCacheMegabytes() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_CACHE_MEGABYTES, String.valueOf(DEFAULT_CACHE_MEGABYTES)));
+            return Math.max(raw, 1);
+        } catch (NumberFormatException e) {
+            return DEFAULT_CACHE_MEGABYTES;
+        }
+    }
+
+    /** Size cap of the persistent render cache, in megabytes; 0 disables it. */
+    public int getDiskCacheMegabytes() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_DISK_CACHE_MEGABYTES, String.valueOf(DEFAULT_DISK_CACHE_MEGABYTES)));
+            return Math.max(raw, 0);
+        } catch (NumberFormatException e) {
+            return DEFAULT_DISK_CACHE_MEGABYTES;
+        }
+    }
+
     public boolean isShowInfoOverlay() {
         return Boolean.parseBoolean(props.getProperty(KEY_SHOW_INFO_OVERLAY, String.valueOf(DEFAULT_SHOW_OVERLAY)));
     }
 
+    public boolean isShowThumbnails() {
+        return Boolean.parseBoolean(props.getProperty(KEY_SHOW_THUMBNAILS, String.valueOf(DEFAULT_SHOW_THUMBNAILS)));
+    }
+
+    /** Show a quick low-resolution pass before the full-quality page on cache misses. */
+    public boolean isProgressive() {
+        return Boolean.parseBoolean(props.getProperty(KEY_PROGRESSIVE, String.valueOf(DEFAULT_PROGRESSIVE)));
+    }
+
+    /**
+     * Render pages whose low-resolution pass or thumbnail had no colour in
+     * shades of grey.
+     */
+    public boolean isGreyPages() {
+        return Boolean.parseBoolean(props.getProperty(KEY_GREY_PAGES, String.valueOf(DEFAULT_GREY_PAGES)));
+    }
+
+    /**
+     * Render pages at the resolution that fits the viewport, with
+     * {@link #getDpi()} as the upper bound, instead of always at {@link #getDpi()}.
+     */
+    public boolean isAutoDpi() {
+        return Boolean.parseBoolean(props.getProperty(KEY_AUTO_DPI, String.valueOf(DEFAULT_AUTO_DPI)));
+    }
+
     public Backend getBackend() {
         try {
             return Backend.valueOf(props.getProperty(KEY_BACKEND, DEFAULT_BACKEND.name()));
@@ -77,6 +156,60 @@ public final class PdfSettings {
         }
     }
 
+    public CacheFormat getCacheFormat() {
+        try {
+            return CacheFormat.valueOf(props.getProperty(KEY_CACHE_FORMAT, DEFAULT_CACHE_FORMAT.name()));
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_CACHE_FORMAT;
+        }
+    }
+
+    /** Parallel renderers per document; 0 means size automatically. */
+    public int getRenderThreads() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_RENDER_THREADS, String.valueOf(DEFAULT_RENDER_THREADS)));
+            return Math.max(raw, 0);
+        } catch (NumberFormatException e) {
+            return DEFAULT_RENDER_THREADS;
+        }
+    }
+
+    /** Pages rendered ahead in the direction of travel; 0 disables prefetch. */
+    public int getPrefetchPages() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_PREFETCH_PAGES, String.valueOf(DEFAULT_PREFETCH_PAGES)));
+            return Math.max(raw, 0);
+        } catch (NumberFormatException e) {
+            return DEFAULT_PREFETCH_PAGES;
+        }
+    }
+
+    /**
+     * PDFs in the same directory opened ahead of the selected one, in the
+     * direction of travel; 0 disables warm-up.
+     */
+    public int getWarmUpFiles() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_WARM_UP_FILES, String.valueOf(DEFAULT_WARM_UP_FILES)));
+            return Math.max(raw, 0);
+        } catch (NumberFormatException e) {
+            return DEFAULT_WARM_UP_FILES;
+        }
+    }
+
+    /**
+     * Recently viewed documents kept open after switching away or closing
+     * the pane, in addition to those opened by warm-up.
+     */
+    public int getOpenDocuments() {
+        try {
+            int raw = Integer.parseInt(props.getProperty(KEY_OPEN_DOCUMENTS, String.valueOf(DEFAULT_OPEN_DOCUMENTS)));
+            return Math.max(raw, 0);
+        } catch (NumberFormatException e) {
+            return DEFAULT_OPEN_DOCUMENTS;
+        }
+    }
+
     // --- Setters (also persist) ---
 
     public synchronized void setDpi(int dpi) {
@@ -89,6 +222,11 @@ public final class PdfSettings {
         save();
     }
 
+    public synchronized void setShowThumbnails(boolean show) {
+        props.setProperty(KEY_SHOW_THUMBNAILS, String.valueOf(show));
+        save();
+    }
+
     public synchronized void setBackend(Backend backend) {
         props.setProperty(KEY_BACKEND, backend.name());
         save();
@@ -125,21 +263,24 @@ public final class PdfSettings {
     }
 
     private static Path settingsFile() {
+        return configDir().resolve("pdf-quick-viewer.properties");
+    }
+
+    /** Platform user config directory shared by the plugin's settings and caches. */
+    static Path configDir() {
         String os = System.getProperty("os.name", "").toLowerCase();
-        Path dir;
         if (os.contains("win")) {
             String appData = System.getenv("APPDATA");
-            dir = (appData != null)
+            return (appData != null)
                     ? Path.of(appData, "nuclr")
                     : Path.of(System.getProperty("user.home"), "nuclr");
         } else if (os.contains("mac")) {
-            dir = Path.of(System.getProperty("user.home"), "Library", "Application Support", "nuclr");
+            return Path.of(System.getProperty("user.home"), "Library", "Application Support", "nuclr");
         } else {
             String xdg = System.getenv("XDG_CONFIG_HOME");
-            dir = (xdg != null)
+            return (xdg != null)
                     ? Path.of(xdg, "nuclr")
                     : Path.of(System.getProperty("user.home"), ".config", "nuclr");
         }
-        return dir.resolve("pdf-quick-viewer.properties");
     }
 }
@@ -0,0 +1,46 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.PageDrawer;
+import org.apache.pdfbox.rendering.PageDrawerParameters;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@link PDFRenderer} whose page drawer checks a cancellation token before
+ * every content stream operator, so a superseded render of a heavy page stops
+ * within one operator instead of running to completion.
+ *
+ * <p>Like {@code PDFRenderer} itself, used by one thread at a time.
+ */
+final class CancellablePdfRenderer extends PDFRenderer {
+
+    private volatile BooleanSupplier cancelled = PdfRenderBackend.NOT_CANCELLED;
+
+    CancellablePdfRenderer(PDDocument document) {
+        super(document);
+    }
+
+    /** Token for the next render; null means never cancelled. */
+    void setCancellation(BooleanSupplier cancelled) {
+        this.cancelled = cancelled != null ? cancelled : PdfRenderBackend.NOT_CANCELLED;
+    }
+
+    @Override
+    protected PageDrawer createPageDrawer(PageDrawerParameters parameters) throws IOException {
+        BooleanSupplier token = cancelled;
+        return new PageDrawer(parameters) {
+            @Override
+            protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+                if (token.getAsBoolean()) throw new CancellationException("Render cancelled");
+                super.processOperator(operator, operands);
+            }
+        };
+    }
+}
@@ -4,18 +4,36 @@ import dev.nuclr.plugin.core.quick.viewer.PdfDocumentInfo;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.imageio.ImageIO;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 /**
  * Optional CLI-based PDF rendering backend.
  * Supports MuPDF (mutool), Poppler (pdftocairo/pdftoppm), and Ghostscript (gs).
  * Falls back gracefully when the chosen tool is unavailable.
+ *
+ * <p>MuPDF keeps one resident {@link MutoolWorker} per open document; the other
+ * tools spawn one process per page.
+ *
+ * <p>Cancellation is polled every {@link #CANCEL_POLL_MS} while a tool runs;
+ * a cancelled render destroys the process. A killed resident worker is
+ * restarted on the next render.
  */
 @Slf4j
 public class CliBackend implements PdfRenderBackend {
@@ -30,21 +48,38 @@ public class CliBackend implements PdfRenderBackend {
         Tool(String exe) { this.exe = exe; }
     }
 
+    /** Pages per process when rendering ranges (prefetch, thumbnails). */
+    private static final int BATCH_PAGES = 16;
+
+    private static final long CANCEL_POLL_MS = 50;
+
     private final Tool tool;
-    private Path tempPdfFile;
+    /** Resolved executable path (or bare name) used to launch {@link #tool}. */
+    private final String exe;
+    private Path pdfFile;
+    /** In-memory source whose shared temp copy {@link #pdfFile} is; released on close. */
+    private PdfSource tempSource;
+    /** Output of {@link #readInfo} if it already ran for the open document, kept for {@link #readMetadata}. */
+    private Map<String, String> infoFields;
+    /** Resident mutool process for the open document; null when spawning per page. */
+    private MutoolWorker worker;
+    /** True when the worker was killed by a cancellation and should be started again. */
+    private boolean restartWorker;
 
     private CliBackend(Tool tool) {
         this.tool = tool;
+        this.exe  = CliToolRegistry.getInstance().executable(tool.exe);
     }
 
     /**
      * Detect the first available CLI tool in preference order.
-     * Returns null if no tool is found.
+     * Returns null if no tool is found. Probe results come from
+     * {@link CliToolRegistry}, so repeated calls spawn no processes.
      */
     public static CliBackend detect() {
         for (Tool t : Tool.values()) {
-            if (probe(t.exe)) {
-                log.info("PDF CLI backend detected: {} ({})", t.name(), t.exe);
+            if (CliToolRegistry.getInstance().lookup(t.exe) != null) {
+                log.debug("PDF CLI backend detected: {} ({})", t.name(), t.exe);
                 return new CliBackend(t);
             }
         }
@@ -57,28 +92,14 @@ public class CliBackend implements PdfRenderBackend {
      */
     public static CliBackend forTool(String toolEnumName) {
         for (Tool t : Tool.values()) {
-            if (t.name().equalsIgnoreCase(toolEnumName) && probe(t.exe)) {
+            if (t.name().equalsIgnoreCase(toolEnumName)
+                    && CliToolRegistry.getInstance().lookup(t.exe) != null) {
                 return new CliBackend(t);
             }
         }
         return null;
     }
 
-    // ------------------------------------------------------------------ probe
-
-    private static boolean probe(String exe) {
-        try {
-            ProcessBuilder pb = new ProcessBuilder(exe, "--version");
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-            p.getInputStream().transferTo(OutputStream.nullOutputStream());
-            p.waitFor();
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     // -------------------------------------------------- PdfRenderBackend impl
 
     @Override
@@ -88,52 +109,148 @@ public class CliBackend implements PdfRenderBackend {
 
     @Override
     public boolean isAvailable() {
-        return probe(tool.exe);
+        return CliToolRegistry.getInstance().lookup(tool.exe) != null;
     }
 
     @Override
-    public PdfDocumentInfo openDocument(byte[] pdfBytes) throws Exception {
+    public PdfRenderBackend newInstance() {
+        return new CliBackend(tool);
+    }
+
+    /**
+     * Local files are handed to the tool by path with no copy; in-memory
+     * sources through the temp copy all instances of a pool share
+     * ({@link PdfSource#acquireTempFile()}), released on close.
+     */
+    @Override
+    public PdfDocumentInfo openDocument(PdfSource source) throws Exception {
         closeDocument();
-        tempPdfFile = Files.createTempFile("nuclr-pdf-", ".pdf");
-        Files.write(tempPdfFile, pdfBytes);
-        int pageCount = detectPageCount(tempPdfFile);
-        log.info("Opened PDF via {}: {} pages", tool.exe, pageCount);
+        if (source.isFile()) {
+            pdfFile = source.file();
+        } else {
+            pdfFile = source.acquireTempFile();
+            tempSource = source;
+        }
+        int pageCount;
+        try {
+            if (tool == Tool.MUTOOL) {
+                worker = MutoolWorker.start(exe, pdfFile);
+            }
+            pageCount = worker != null ? worker.pageCount() : fastPageCount(source);
+        } catch (Exception e) {
+            closeDocument();
+            throw e;
+        }
+        log.info("Opened PDF via {}{}: {} pages", tool.exe, worker != null ? " (resident)" : "", pageCount);
         return new PdfDocumentInfo(null, null, pageCount, null, false);
     }
 
     @Override
-    public BufferedImage renderPage(int pageIndex, float dpi) throws Exception {
-        if (tempPdfFile == null) throw new IllegalStateException("No document open");
-        Path outBase = Files.createTempFile("nuclr-page-", "");
-        try {
-            Path outPng = renderToFile(tempPdfFile, pageIndex, dpi, outBase);
-            BufferedImage img = ImageIO.read(outPng.toFile());
-            Files.deleteIfExists(outPng);
-            if (img == null) throw new IOException(tool.exe + " produced an unreadable image");
-            return img;
-        } finally {
-            Files.deleteIfExists(outBase);
+    public BufferedImage renderPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception {
+        return render(pageIndex, dpi, false, cancelled);
+    }
+
+    /** Every tool can write grey output: PGM from mutool, pdftoppm and gs, grey PNG from pdftocairo. */
+    @Override
+    public BufferedImage renderGreyPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception {
+        return render(pageIndex, dpi, true, cancelled);
+    }
+
+    private BufferedImage render(int pageIndex, float dpi, boolean grey, BooleanSupplier cancelled) throws Exception {
+        if (pdfFile == null) throw new IllegalStateException("No document open");
+        if (worker != null && worker.wasKilled()) {
+            // Killed by a cancellation that came just after its last page was done
+            worker.close();
+            worker = null;
+            restartWorker = true;
         }
+        if (restartWorker) {
+            restartWorker = false;
+            try {
+                worker = MutoolWorker.start(exe, pdfFile);
+            } catch (Exception e) {
+                log.debug("mutool worker restart failed: {}", e.getMessage());
+            }
+        }
+        if (worker != null) {
+            BufferedImage img = renderWithWorker(pageIndex, dpi, grey, cancelled);
+            if (img != null) return img;
+        }
+        return renderToStdout(pdfFile, pageIndex, dpi, grey, cancelled);
     }
 
     @Override
     public void closeDocument() {
-        if (tempPdfFile != null) {
-            try { Files.deleteIfExists(tempPdfFile); } catch (IOException ignored) {}
-            tempPdfFile = null;
+        if (worker != null) {
+            worker.close();
+            worker = null;
         }
+        if (tempSource != null) tempSource.releaseTempFile();
+        pdfFile = null;
+        tempSource = null;
+        infoFields = null;
+        restartWorker = false;
     }
 
     // ---------------------------------------------------------------- helpers
 
+    /**
+     * Title, author and version from {@code pdfinfo}. Only Poppler ships it;
+     * for the other tools the info is returned unchanged. If {@code pdfinfo}
+     * already ran to count the pages, its output is reused rather than run again.
+     */
+    @Override
+    public PdfDocumentInfo readMetadata(PdfDocumentInfo info) {
+        if (pdfFile == null) throw new IllegalStateException("No document open");
+        if (tool != Tool.POPPLER_CAIRO && tool != Tool.POPPLER_PPM) return info;
+        if (infoFields == null) infoFields = readInfo(pdfFile);
+        Map<String, String> fields = infoFields;
+        String version = fields.get("PDF version");
+        return new PdfDocumentInfo(fields.get("Title"), fields.get("Author"), info.pageCount(),
+                version != null ? "PDF " + version : info.pdfVersion(), info.encrypted());
+    }
+
+    /**
+     * Page count from the linearization dictionary when the file has one that
+     * is still valid, which saves starting {@code pdfinfo} or {@code mutool info}
+     * before the first page; otherwise from the tool.
+     */
+    private int fastPageCount(PdfSource source) throws IOException {
+        PdfLinearization lin = PdfLinearization.read(source);
+        if (lin != null && lin.matches(source.length())) {
+            log.debug("Page count {} from linearization dictionary", lin.pageCount());
+            return lin.pageCount();
+        }
+        return detectPageCount(pdfFile);
+    }
+
     private int detectPageCount(Path pdf) {
+        if (tool == Tool.GHOSTSCRIPT) return 1;
+        infoFields = readInfo(pdf);
+        String pages = infoFields.get("Pages");
+        if (pages != null) {
+            try {
+                return Integer.parseInt(pages.split("\\s+")[0]);
+            } catch (NumberFormatException e) {
+                log.warn("Unexpected page count from {}: {}", tool.exe, pages);
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Run {@code pdfinfo} (Poppler) or {@code mutool info} and collect its
+     * {@code Key: value} lines. Empty if the tool fails or is not supported.
+     */
+    private Map<String, String> readInfo(Path pdf) {
         List<String> cmd = new ArrayList<>();
         switch (tool) {
-            case MUTOOL         -> { cmd.add(tool.exe); cmd.add("info"); cmd.add(pdf.toString()); }
+            case MUTOOL         -> { cmd.add(exe); cmd.add("info"); cmd.add(pdf.toString()); }
             case POPPLER_CAIRO,
-                 POPPLER_PPM   -> { cmd.add("pdfinfo"); cmd.add(pdf.toString()); }
-            default            -> { return 1; }
+                 POPPLER_PPM   -> { cmd.add(CliToolRegistry.getInstance().executable("pdfinfo")); cmd.add(pdf.toString()); }
+            default            -> { return Map.of(); }
         }
+        Map<String, String> fields = new HashMap<>();
         try {
             ProcessBuilder pb = new ProcessBuilder(cmd);
             pb.redirectErrorStream(true);
@@ -141,79 +258,239 @@ public class CliBackend implements PdfRenderBackend {
             String output = new String(p.getInputStream().readAllBytes());
             p.waitFor();
             for (String line : output.split("[\r\n]+")) {
-                String t = line.trim();
-                if (t.startsWith("Pages:")) {
-                    String[] parts = t.split(":\\s*", 2);
-                    if (parts.length == 2) {
-                        String num = parts[1].trim().split("\\s+")[0];
-                        return Integer.parseInt(num);
-                    }
-                }
+                String[] parts = line.trim().split(":\\s*", 2);
+                if (parts.length == 2 && !parts[1].isBlank()) fields.putIfAbsent(parts[0], parts[1].trim());
             }
         } catch (Exception e) {
-            log.warn("Could not detect page count via {}: {}", tool.exe, e.getMessage());
+            log.warn("Could not read document info via {}: {}", tool.exe, e.getMessage());
         }
-        return 1;
+        return fields;
     }
 
     /**
-     * Render a single page to a PNG file and return its path.
-     * The caller is responsible for deleting the returned file.
+     * Render through the resident worker. Returns null if the page could not
+     * be rendered this way; it is then rendered by a fresh process. A worker
+     * that failed one page is kept for the next; one that died is shut down
+     * and all later pages are spawned too. If the render is cancelled the
+     * worker is killed and started again on the next render.
      */
-    private Path renderToFile(Path pdf, int pageIndex, float dpi, Path outBase) throws Exception {
-        int oneBased = pageIndex + 1;
-        int dpiInt   = Math.round(dpi);
-        List<String> cmd = new ArrayList<>();
-        Path outPng;
+    private BufferedImage renderWithWorker(int pageIndex, float dpi, boolean grey, BooleanSupplier cancelled) {
+        try {
+            return worker.render(pageIndex, dpi, grey, cancelled);
+        } catch (IOException e) {
+            if (cancelled.getAsBoolean() || worker.wasKilled()) {
+                worker.close();
+                worker = null;
+                restartWorker = true;
+                throw new CancellationException("Render cancelled");
+            }
+            if (worker.isAlive()) {
+                log.debug("mutool worker could not render page {}: {}", pageIndex + 1, e.getMessage());
+                return null;
+            }
+            log.warn("mutool worker died, falling back to one process per page: {}", e.getMessage());
+            worker.close();
+            worker = null;
+            return null;
+        }
+    }
 
-        switch (tool) {
-            case MUTOOL -> {
-                outPng = Path.of(outBase + ".png");
-                cmd.addAll(List.of(tool.exe, "draw",
-                        "-r", String.valueOf(dpiInt),
-                        "-o", outPng.toString(),
-                        pdf.toString(),
-                        String.valueOf(oneBased)));
+    /**
+     * One process per range instead of per page. Not used while the resident
+     * mutool worker is alive, since it already renders without a spawn.
+     */
+    @Override
+    public List<BufferedImage> renderPages(int firstPage, int lastPage, float dpi,
+                                           BooleanSupplier cancelled) throws Exception {
+        if (pdfFile == null) throw new IllegalStateException("No document open");
+        if (worker != null || firstPage == lastPage) {
+            return PdfRenderBackend.super.renderPages(firstPage, lastPage, dpi, cancelled);
+        }
+        return tool == Tool.POPPLER_CAIRO
+                ? renderRangeToDirectory(pdfFile, firstPage, lastPage, dpi, cancelled)
+                : renderRangeToStdout(pdfFile, firstPage, lastPage, dpi, false, cancelled);
+    }
+
+    /** Only Poppler can crop while rendering; MuPDF and Ghostscript always rasterise the whole page. */
+    @Override
+    public Optional<RegionRenderer> regionRenderer() {
+        return tool == Tool.POPPLER_CAIRO || tool == Tool.POPPLER_PPM
+                ? Optional.of(this::renderRegion)
+                : Optional.empty();
+    }
+
+    /** Poppler crops while rendering ({@code -x -y -W -H}). */
+    private BufferedImage renderRegion(int pageIndex, float dpi, Rectangle region,
+                                       BooleanSupplier cancelled) throws Exception {
+        if (pdfFile == null) throw new IllegalStateException("No document open");
+        String page = String.valueOf(pageIndex + 1);
+        List<String> cmd = new ArrayList<>(List.of(exe));
+        if (tool == Tool.POPPLER_CAIRO) cmd.addAll(List.of("-png", "-singlefile"));
+        cmd.addAll(List.of(
+                "-r", String.valueOf(Math.round(dpi)), "-f", page, "-l", page,
+                "-x", String.valueOf(region.x), "-y", String.valueOf(region.y),
+                "-W", String.valueOf(region.width), "-H", String.valueOf(region.height),
+                pdfFile.toString()));
+        if (tool == Tool.POPPLER_CAIRO) cmd.add("-");
+        return runAndDecode(cmd, 1, cancelled).get(0);
+    }
+
+    @Override
+    public int preferredBatchSize() {
+        return worker != null ? 1 : BATCH_PAGES;
+    }
+
+    /**
+     * Render a single page and read the raster from the tool's stdout: raw
+     * PPM/PNM for MuPDF, pdftoppm and Ghostscript, PNG for pdftocairo (which
+     * has no raw output). No temp files are involved.
+     */
+    private BufferedImage renderToStdout(Path pdf, int pageIndex, float dpi, boolean grey,
+                                         BooleanSupplier cancelled) throws Exception {
+        if (tool != Tool.POPPLER_CAIRO) {
+            return renderRangeToStdout(pdf, pageIndex, pageIndex, dpi, grey, cancelled).get(0);
+        }
+        String page = String.valueOf(pageIndex + 1);
+        List<String> cmd = new ArrayList<>(List.of(exe, "-png", "-singlefile"));
+        if (grey) cmd.add("-gray");
+        cmd.addAll(List.of("-r", String.valueOf(Math.round(dpi)), "-f", page, "-l", page,
+                pdf.toString(), "-"));
+        List<BufferedImage> images = runAndDecode(cmd, 1, cancelled);
+        return images.get(0);
+    }
+
+    /**
+     * Render a page range in one process and decode the concatenated raw
+     * PPM/PNM images from stdout. Not supported by pdftocairo.
+     */
+    private List<BufferedImage> renderRangeToStdout(Path pdf, int firstPage, int lastPage, float dpi,
+                                                    boolean grey, BooleanSupplier cancelled) throws Exception {
+        String first  = String.valueOf(firstPage + 1);
+        String last   = String.valueOf(lastPage + 1);
+        String dpiStr = String.valueOf(Math.round(dpi));
+        List<String> cmd = switch (tool) {
+            case MUTOOL -> List.of(exe, "draw",
+                    "-r", dpiStr, "-c", grey ? "gray" : "rgb", "-F", "pnm", "-o", "-",
+                    pdf.toString(), first.equals(last) ? first : first + "-" + last);
+            case POPPLER_PPM -> grey
+                    ? List.of(exe, "-gray", "-r", dpiStr, "-f", first, "-l", last, pdf.toString())
+                    : List.of(exe, "-r", dpiStr, "-f", first, "-l", last, pdf.toString());
+            case GHOSTSCRIPT -> List.of(exe,
+                    "-q", "-dNOPAUSE", "-dBATCH", "-dSAFER",
+                    grey ? "-sDEVICE=pgmraw" : "-sDEVICE=ppmraw",
+                    "-r" + dpiStr,
+                    "-dFirstPage=" + first,
+                    "-dLastPage=" + last,
+                    "-sOutputFile=-",
+                    pdf.toString());
+            case POPPLER_CAIRO -> throw new IllegalStateException("pdftocairo cannot write raw images to stdout");
+        };
+        return runAndDecode(cmd, lastPage - firstPage + 1, cancelled);
+    }
+
+    /**
+     * pdftocairo only streams single pages, so a range goes to a temp directory
+     * as PNG files (named {@code p-<page>.png}, zero-padded) that are read back
+     * in page order.
+     */
+    private List<BufferedImage> renderRangeToDirectory(Path pdf, int firstPage, int lastPage, float dpi,
+                                                       BooleanSupplier cancelled) throws Exception {
+        Path dir = Files.createTempDirectory("nuclr-pages-");
+        try {
+            List<String> cmd = List.of(exe, "-png",
+                    "-r", String.valueOf(Math.round(dpi)),
+                    "-f", String.valueOf(firstPage + 1),
+                    "-l", String.valueOf(lastPage + 1),
+                    pdf.toString(), dir.resolve("p").toString());
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            watchCancellation(p, cancelled);
+            String output = new String(p.getInputStream().readAllBytes());
+            int exitCode = p.waitFor();
+            if (cancelled.getAsBoolean()) throw new CancellationException("Render cancelled");
+            if (exitCode != 0) {
+                throw new IOException(tool.exe + " exited with " + exitCode + ": " + output.trim());
             }
-            case POPPLER_CAIRO -> {
-                // pdftocairo appends -000001.png to the prefix
-                outPng = Path.of(outBase + String.format("-%06d.png", 1));
-                cmd.addAll(List.of(tool.exe, "-png",
-                        "-r", String.valueOf(dpiInt),
-                        "-f", String.valueOf(oneBased),
-                        "-l", String.valueOf(oneBased),
-                        pdf.toString(), outBase.toString()));
+            List<Path> files;
+            try (Stream<Path> s = Files.list(dir)) {
+                files = s.filter(f -> f.getFileName().toString().endsWith(".png")).sorted().toList();
             }
-            case POPPLER_PPM -> {
-                outPng = Path.of(outBase + String.format("-%06d.png", 1));
-                cmd.addAll(List.of(tool.exe, "-png",
-                        "-r", String.valueOf(dpiInt),
-                        "-f", String.valueOf(oneBased),
-                        "-l", String.valueOf(oneBased),
-                        pdf.toString(), outBase.toString()));
+            if (files.size() != lastPage - firstPage + 1) {
+                throw new IOException(tool.exe + " produced " + files.size() + " pages, expected "
+                        + (lastPage - firstPage + 1));
             }
-            case GHOSTSCRIPT -> {
-                outPng = Path.of(outBase + ".png");
-                cmd.addAll(List.of(tool.exe,
-                        "-dNOPAUSE", "-dBATCH", "-dSAFER",
-                        "-sDEVICE=png16m",
-                        "-r" + dpiInt,
-                        "-dFirstPage=" + oneBased,
-                        "-dLastPage=" + oneBased,
-                        "-sOutputFile=" + outPng,
-                        pdf.toString()));
+            List<BufferedImage> images = new ArrayList<>(files.size());
+            for (Path f : files) {
+                BufferedImage img = ImageIO.read(f.toFile());
+                if (img == null) throw new IOException(tool.exe + " produced an unreadable image");
+                images.add(img);
             }
-            default -> throw new IllegalStateException("Unknown tool: " + tool);
+            return images;
+        } finally {
+            try (Stream<Path> s = Files.list(dir)) {
+                s.forEach(f -> f.toFile().delete());
+            }
+            Files.deleteIfExists(dir);
         }
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-        String stderr = new String(p.getInputStream().readAllBytes());
+    /** Run {@code cmd} and decode {@code expected} images from its stdout. */
+    private List<BufferedImage> runAndDecode(List<String> cmd, int expected,
+                                             BooleanSupplier cancelled) throws Exception {
+        Process p = new ProcessBuilder(cmd).start();
+        watchCancellation(p, cancelled);
+        CompletableFuture<String> stderr = drainAsync(p.getErrorStream());
+        List<BufferedImage> images = new ArrayList<>(expected);
+        try (InputStream out = new BufferedInputStream(p.getInputStream(), 1 << 16)) {
+            for (int i = 0; i < expected; i++) {
+                BufferedImage img = tool == Tool.POPPLER_CAIRO ? ImageIO.read(out) : PnmDecoder.read(out);
+                if (img == null) break;
+                images.add(img);
+            }
+            out.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            p.destroyForcibly();
+            if (cancelled.getAsBoolean()) throw new CancellationException("Render cancelled");
+            throw new IOException(tool.exe + " produced an unreadable image: " + e.getMessage(), e);
+        }
         int exitCode = p.waitFor();
+        if (cancelled.getAsBoolean()) throw new CancellationException("Render cancelled");
         if (exitCode != 0) {
-            throw new IOException(tool.exe + " exited with " + exitCode + ": " + stderr.trim());
+            throw new IOException(tool.exe + " exited with " + exitCode + ": " + stderr.join().trim());
+        }
+        if (images.size() != expected) {
+            throw new IOException(tool.exe + " produced " + images.size() + " pages, expected " + expected);
         }
-        return outPng;
+        return images;
+    }
+
+    /**
+     * Destroy {@code p} as soon as {@code cancelled} returns true. The watcher
+     * is a virtual thread that ends with the process.
+     */
+    private static void watchCancellation(Process p, BooleanSupplier cancelled) {
+        if (cancelled == NOT_CANCELLED) return;
+        Thread.ofVirtual().name("pdf-cli-cancel").start(() -> {
+            try {
+                while (!p.waitFor(CANCEL_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled.getAsBoolean()) {
+                        p.destroy();
+                        if (!p.waitFor(CANCEL_POLL_MS, TimeUnit.MILLISECONDS)) p.destroyForcibly();
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /** Collect a process stream on a virtual thread so the pipe never fills up. */
+    static CompletableFuture<String> drainAsync(InputStream stream) {
+        CompletableFuture<String> text = new CompletableFuture<>();
+        Thread.ofVirtual().name("pdf-cli-drain").start(() -> {
+            try { text.complete(new String(stream.readAllBytes())); }
+            catch (IOException e) { text.complete(""); }
+        });
+        return text;
     }
 }
@@ -0,0 +1,123 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of external PDF tools.
+ *
+ * <p>Each executable is resolved on {@code PATH} once: a missing tool costs a
+ * directory scan rather than a failed process spawn, and a present tool is
+ * started once with {@code --version} to record its version. Results are kept
+ * until the resolved file disappears or {@link #refresh()} is called, e.g.
+ * after a tool was installed; a JVM never sees its own {@code PATH} change.
+ */
+@Slf4j
+public final class CliToolRegistry {
+
+    /** A resolved executable. {@code version} is the first line of its version output, if any. */
+    public record ToolInfo(String exe, Path path, String version) {}
+
+    private static final CliToolRegistry INSTANCE = new CliToolRegistry();
+
+    private static final long VERSION_TIMEOUT_MS = 5000;
+
+    private final Map<String, Optional<ToolInfo>> tools = new ConcurrentHashMap<>();
+
+    private CliToolRegistry() {}
+
+    public static CliToolRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Resolve {@code exe} (e.g. {@code "mutool"}), probing it on first use.
+     *
+     * @return the tool, or null if it is not installed
+     */
+    public ToolInfo lookup(String exe) {
+        Optional<ToolInfo> cached = tools.get(exe);
+        if (cached != null && (cached.isEmpty() || Files.isRegularFile(cached.get().path()))) {
+            return cached.orElse(null);
+        }
+        Optional<ToolInfo> probed = Optional.ofNullable(probe(exe));
+        tools.put(exe, probed);
+        return probed.orElse(null);
+    }
+
+    /** Executable to launch: the resolved absolute path, or the bare name if unresolved. */
+    public String executable(String exe) {
+        ToolInfo info = lookup(exe);
+        return info != null ? info.path().toString() : exe;
+    }
+
+    /** Forget all probe results; the next lookup of each tool probes again. */
+    public void refresh() {
+        tools.clear();
+    }
+
+    /** Probe every rendering tool on a virtual thread so the first preview does not pay for it. */
+    public void warmUpAsync() {
+        Thread.ofVirtual().name("pdf-cli-probe").start(() -> {
+            for (CliBackend.Tool t : CliBackend.Tool.values()) {
+                ToolInfo info = lookup(t.exe);
+                if (info != null) log.info("PDF CLI tool {}: {} ({})", t.exe, info.path(), info.version());
+            }
+            lookup("pdfinfo");
+        });
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private static ToolInfo probe(String exe) {
+        Path path = resolveOnPath(exe);
+        if (path == null) return null;
+        String version = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(path.toString(), "--version");
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+            // Read on the side, so a tool that hangs instead of exiting cannot block the probe
+            CompletableFuture<String> drained = CliBackend.drainAsync(p.getInputStream());
+            if (!p.waitFor(VERSION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                log.debug("{} --version did not exit within {} ms", exe, VERSION_TIMEOUT_MS);
+            }
+            String output = drained.completeOnTimeout("", VERSION_TIMEOUT_MS, TimeUnit.MILLISECONDS).join().trim();
+            if (!output.isEmpty()) version = output.lines().findFirst().orElse(null);
+        } catch (Exception e) {
+            log.debug("{} found at {} but could not be started: {}", exe, path, e.getMessage());
+            return null;
+        }
+        return new ToolInfo(exe, path, version);
+    }
+
+    private static Path resolveOnPath(String exe) {
+        String pathEnv = System.getenv("PATH");
+        if (pathEnv == null) return null;
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        String[] suffixes = windows ? new String[] {".exe", ".cmd", ".bat", ""} : new String[] {""};
+        for (String dir : pathEnv.split(File.pathSeparator)) {
+            if (dir.isBlank()) continue;
+            for (String suffix : suffixes) {
+                try {
+                    Path candidate = Path.of(dir.trim(), exe + suffix);
+                    if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) return candidate;
+                } catch (InvalidPathException ignored) {
+                    // malformed PATH entry
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,308 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Resident {@code mutool run} process that keeps one document open and renders
+ * pages on request, so a page costs neither a process spawn nor a re-parse.
+ *
+ * <p>The worker script speaks a line protocol over stdin/stdout: it prints
+ * {@code hello} on start, {@code ready<TAB>pageCount} (or {@code encrypted} /
+ * {@code err<TAB>message}) once the document is open, then answers each
+ * {@code render<TAB>page<TAB>dpi<TAB>out<TAB>rgb|gray} line with
+ * {@code ok} or {@code err<TAB>message}.
+ *
+ * <p>The script API has no way to write binary data to stdout, so each page
+ * is handed over as raw PNM ({@code P5}/{@code P6}) in one scratch file that
+ * the worker reuses for every page and deletes on close, and decoded by
+ * {@link PnmDecoder}; no image is PNG-encoded or decoded. mutool builds whose
+ * {@code Pixmap} lacks {@code saveAsPNM} write PNG to the same file instead.
+ *
+ * <p>Some mutool builds buffer stdout when it is a pipe, which would stall the
+ * protocol. If {@code hello} does not arrive within {@link #HELLO_TIMEOUT_MS}
+ * the worker is killed and the caller falls back to one process per page.
+ * After {@link #MAX_HELLO_FAILURES} such failures in a row, with no worker
+ * starting in between, resident mode is disabled for the rest of the session;
+ * a single slow start (a loaded machine, a cold disk) does not do that.
+ *
+ * <p>Not thread-safe; owned by a single {@link CliBackend} instance.
+ */
+@Slf4j
+final class MutoolWorker implements AutoCloseable {
+
+    private static final long HELLO_TIMEOUT_MS   = 3000;
+    private static final int  MAX_HELLO_FAILURES = 3;
+    /** Time mutool gets to parse the document and report {@code ready}. */
+    private static final long OPEN_TIMEOUT_MS    = 30_000;
+    private static final long CANCEL_POLL_MS     = 50;
+
+    /** Works with both the legacy global API and the {@code mupdf} module API (1.22+). */
+    private static final String SCRIPT = """
+            var M = typeof mupdf !== "undefined" ? mupdf : this;
+            var rgb = M.ColorSpace ? M.ColorSpace.DeviceRGB : DeviceRGB;
+            var gray = M.ColorSpace ? M.ColorSpace.DeviceGray : DeviceGray;
+            function openDoc(path) {
+                if (M.Document && M.Document.openDocument) return M.Document.openDocument(path);
+                return new Document(path);
+            }
+            print("hello");
+            var doc;
+            try {
+                doc = openDoc(scriptArgs[0]);
+            } catch (e) {
+                print("err\\t" + e);
+                quit();
+            }
+            if (doc.needsPassword && doc.needsPassword()) {
+                print("encrypted");
+                quit();
+            }
+            print("ready\\t" + doc.countPages());
+            var line;
+            while ((line = readline()) != null) {
+                var cmd = line.split("\\t");
+                if (cmd[0] === "quit") break;
+                try {
+                    if (cmd[0] === "render") {
+                        var s = Number(cmd[2]) / 72;
+                        var cs = cmd[4] === "gray" ? gray : rgb;
+                        var pix = doc.loadPage(Number(cmd[1])).toPixmap([s, 0, 0, s, 0, 0], cs, false);
+                        if (pix.saveAsPNM) pix.saveAsPNM(cmd[3]); else pix.saveAsPNG(cmd[3]);
+                        print("ok");
+                    } else {
+                        print("err\\tunknown command " + cmd[0]);
+                    }
+                } catch (e) {
+                    print("err\\t" + e);
+                }
+            }
+            """;
+
+    /** Greetings missed in a row; resident mode is off once it reaches {@link #MAX_HELLO_FAILURES}. */
+    private static final AtomicInteger helloFailures = new AtomicInteger();
+    private static Path scriptFile;
+
+    private final Process        process;
+    private final Writer         stdin;
+    private final BufferedReader stdout;
+    private final int            pageCount;
+    /** Where the script writes each rendered page; see the class comment. */
+    private final Path           scratch;
+    /** True once the pipe broke or the script hit end of input; see {@link #isAlive}. */
+    private boolean exited;
+    /** True once a cancellation killed the process, even if its last render had completed. */
+    private volatile boolean killed;
+
+    private MutoolWorker(Process process, Writer stdin, BufferedReader stdout, int pageCount, Path scratch) {
+        this.process   = process;
+        this.stdin     = stdin;
+        this.stdout    = stdout;
+        this.pageCount = pageCount;
+        this.scratch   = scratch;
+    }
+
+    /**
+     * Start a worker for {@code pdf}.
+     *
+     * @return the running worker, or null if resident mode is not supported
+     *         by the installed mutool (the caller should spawn per page)
+     * @throws PdfRenderBackend.EncryptedPdfException if the PDF needs a password
+     * @throws IOException if mutool cannot open the document
+     */
+    static MutoolWorker start(String exe, Path pdf) throws IOException, PdfRenderBackend.EncryptedPdfException {
+        if (helloFailures.get() >= MAX_HELLO_FAILURES) return null;
+
+        ProcessBuilder pb = new ProcessBuilder(exe, "run", script().toString(), pdf.toString());
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process p = pb.start();
+        Writer stdin = new OutputStreamWriter(p.getOutputStream(), StandardCharsets.UTF_8);
+        BufferedReader stdout = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+
+        try {
+            String hello = readLineWithin(stdout, HELLO_TIMEOUT_MS);
+            if (!"hello".equals(hello)) {
+                throw new IOException("unexpected greeting: " + hello);
+            }
+        } catch (IOException e) {
+            p.destroyForcibly();
+            if (helloFailures.incrementAndGet() >= MAX_HELLO_FAILURES) {
+                log.info("mutool resident mode unavailable ({}); rendering one process per page", e.getMessage());
+            } else {
+                log.debug("mutool worker did not start ({}); rendering this document one process per page",
+                        e.getMessage());
+            }
+            return null;
+        }
+        helloFailures.set(0);
+
+        String ready;
+        try {
+            ready = readLineWithin(stdout, OPEN_TIMEOUT_MS);
+        } catch (IOException e) {
+            p.destroyForcibly();
+            log.info("mutool worker did not open {} ({}); rendering one process per page",
+                    pdf.getFileName(), e.getMessage());
+            return null;
+        }
+        if (ready != null && ready.startsWith("ready\t")) {
+            int pages = Integer.parseInt(ready.substring("ready\t".length()).trim());
+            log.debug("mutool worker started for {} ({} pages)", pdf.getFileName(), pages);
+            try {
+                return new MutoolWorker(p, stdin, stdout, pages, Files.createTempFile("nuclr-page-", ".pnm"));
+            } catch (IOException e) {
+                p.destroyForcibly();
+                throw e;
+            }
+        }
+        p.destroyForcibly();
+        if ("encrypted".equals(ready)) throw new PdfRenderBackend.EncryptedPdfException();
+        throw new IOException("mutool could not open document: " + ready);
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * False once the process exited or its pipes broke. An error reply for a
+     * single page leaves the worker alive and able to render other pages.
+     */
+    boolean isAlive() {
+        return !exited && !killed && process.isAlive();
+    }
+
+    /** True if a cancelled render killed the process; the worker must be started again. */
+    boolean wasKilled() {
+        return killed;
+    }
+
+    /**
+     * Render one page, in shades of grey if {@code grey}. Throws if the worker
+     * died, reported an error or wrote an unreadable image; {@link #isAlive}
+     * tells which.
+     * If {@code cancelled} turns true meanwhile the process is killed, which
+     * surfaces here as an {@link IOException}; the worker is then unusable.
+     * The kill may also land just after the reply was read, in which case the
+     * page is returned but {@link #wasKilled} is true; never after this returns.
+     */
+    BufferedImage render(int pageIndex, float dpi, boolean grey, BooleanSupplier cancelled) throws IOException {
+        AtomicBoolean done = new AtomicBoolean();
+        if (cancelled != PdfRenderBackend.NOT_CANCELLED) {
+            Thread.ofVirtual().name("mutool-worker-cancel").start(() -> {
+                try {
+                    while (!done.get()) {
+                        if (cancelled.getAsBoolean()) {
+                            synchronized (done) {
+                                if (!done.get()) {
+                                    killed = true;
+                                    process.destroyForcibly();
+                                }
+                            }
+                            return;
+                        }
+                        Thread.sleep(CANCEL_POLL_MS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            String reply;
+            try {
+                stdin.write("render\t" + pageIndex + "\t" + dpi + "\t" + scratch + "\t" + (grey ? "gray" : "rgb") + "\n");
+                stdin.flush();
+                reply = stdout.readLine();
+            } catch (IOException e) {
+                exited = true;
+                throw e;
+            }
+            if (reply == null) {
+                exited = true;
+                throw new IOException("mutool worker exited");
+            }
+            if (!reply.equals("ok")) throw new IOException("mutool worker: " + reply);
+        } finally {
+            synchronized (done) {
+                done.set(true);
+            }
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(scratch), 1 << 16)) {
+            in.mark(1);
+            boolean pnm = in.read() == 'P';
+            in.reset();
+            BufferedImage img = pnm ? PnmDecoder.read(in) : ImageIO.read(in);
+            if (img == null) throw new IOException("unreadable image");
+            return img;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(scratch);
+        } catch (IOException e) {
+            log.debug("Cannot delete {}: {}", scratch, e.getMessage());
+        }
+        try {
+            stdin.write("quit\n");
+            stdin.flush();
+            if (!process.waitFor(500, TimeUnit.MILLISECONDS)) process.destroyForcibly();
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private static synchronized Path script() throws IOException {
+        if (scriptFile == null || !Files.exists(scriptFile)) {
+            Path f = Files.createTempFile("nuclr-mutool-worker-", ".js");
+            Files.writeString(f, SCRIPT, StandardCharsets.UTF_8);
+            f.toFile().deleteOnExit();
+            scriptFile = f;
+        }
+        return scriptFile;
+    }
+
+    private static String readLineWithin(BufferedReader reader, long timeoutMs) throws IOException {
+        CompletableFuture<String> line = new CompletableFuture<>();
+        Thread.ofVirtual().name("mutool-worker-read").start(() -> {
+            try { line.complete(reader.readLine()); }
+            catch (IOException e) { line.completeExceptionally(e); }
+        });
+        try {
+            return line.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("no reply within " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Linearization dictionary of a "fast web view" PDF (ISO 32000-1, Annex F).
+ *
+ * <p>A linearized file starts with a small dictionary, within its first
+ * {@value #HEADER_BYTES} bytes, that states the page count and where the
+ * objects of the first page end. That is enough to report the page count
+ * without parsing the document or starting a tool, and to render the first
+ * page before the rest of the file has been read.
+ *
+ * @param fileLength      {@code /L}: length of the file when it was linearized
+ * @param pageCount       {@code /N}: number of pages
+ * @param firstPageObject {@code /O}: object number of the first page
+ * @param firstPageEnd    {@code /E}: offset just past the objects of the first page
+ */
+public record PdfLinearization(long fileLength, int pageCount, int firstPageObject, long firstPageEnd) {
+
+    /** The dictionary has to start within this many bytes of the file. */
+    public static final int HEADER_BYTES = 1024;
+
+    private static final Pattern ENTRY = Pattern.compile("/([LNOE])\\s+(\\d+)");
+
+    /**
+     * Read the dictionary from the start of {@code source}.
+     *
+     * @return null if the document is not linearized or cannot be read
+     */
+    public static PdfLinearization read(PdfSource source) {
+        try {
+            if (!source.isFile()) {
+                byte[] bytes = source.bytes();
+                return parse(bytes, bytes.length);
+            }
+            try (InputStream in = Files.newInputStream(source.file())) {
+                byte[] head = in.readNBytes(HEADER_BYTES);
+                return parse(head, head.length);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse the dictionary from the first {@code length} bytes of a file.
+     *
+     * @return null if there is no complete linearization dictionary
+     */
+    public static PdfLinearization parse(byte[] head, int length) {
+        String text = new String(head, 0, Math.min(length, HEADER_BYTES), StandardCharsets.ISO_8859_1);
+        int at = text.indexOf("/Linearized");
+        if (at < 0) return null;
+        int start = text.lastIndexOf("<<", at);
+        int end   = text.indexOf(">>", at);
+        if (start < 0 || end < 0) return null;
+
+        Map<String, Long> values = new HashMap<>();
+        Matcher m = ENTRY.matcher(text.substring(start, end));
+        try {
+            while (m.find()) values.putIfAbsent(m.group(1), Long.parseLong(m.group(2)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Long l = values.get("L"), n = values.get("N"), o = values.get("O"), e = values.get("E");
+        if (l == null || n == null || o == null || e == null) return null;
+        if (n < 1 || n > Integer.MAX_VALUE || o > Integer.MAX_VALUE || e > l) return null;
+        return new PdfLinearization(l, n.intValue(), o.intValue(), e);
+    }
+
+    /**
+     * True if the file still has the length it was linearized with. Saving
+     * with an incremental update appends to the file and may add or remove
+     * pages, which leaves the dictionary stale.
+     */
+    public boolean matches(long length) {
+        return fileLength == length;
+    }
+}
@@ -3,15 +3,28 @@ package dev.nuclr.plugin.core.quick.viewer.backend;
 import dev.nuclr.plugin.core.quick.viewer.PdfDocumentInfo;
 
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Strategy interface for PDF rendering backends.
- * Implementations must be thread-safe: all methods may be called from
- * multiple virtual threads, but the caller guarantees mutual exclusion
- * via an external lock.
+ * Implementations need not be thread-safe: all methods may be called from
+ * multiple virtual threads, but the caller guarantees that one instance is
+ * used by one thread at a time. Parallel rendering opens several instances.
+ *
+ * <p>Render methods take a cancellation token that implementations poll while
+ * they work; once it returns true they stop early and throw
+ * {@link CancellationException}. The instance stays usable afterwards.
  */
 public interface PdfRenderBackend {
 
+    /** Token for renders that are never cancelled. */
+    BooleanSupplier NOT_CANCELLED = () -> false;
+
     /** Human-readable name for logging. */
     String name();
 
@@ -19,26 +32,126 @@ public interface PdfRenderBackend {
     boolean isAvailable();
 
     /**
-     * Open a PDF from the given byte array. Blocks until the document is ready.
+     * Create a new, unopened backend of the same kind and configuration.
+     * Used to open extra instances of a document for parallel rendering.
+     */
+    PdfRenderBackend newInstance();
+
+    /**
+     * Open a PDF from a seekable source. Blocks until the document is ready.
+     * File sources should be read in place rather than copied into memory.
+     * Only what the first page needs is read here: page count and version,
+     * not the document information dictionary (see {@link #readMetadata}).
      *
-     * @param pdfBytes raw PDF bytes
-     * @return document metadata
+     * @param source local file or in-memory bytes
+     * @return page count and version; title and author may be null
      * @throws EncryptedPdfException if the PDF requires a password
      * @throws Exception             for I/O or format errors
      */
-    PdfDocumentInfo openDocument(byte[] pdfBytes) throws Exception;
+    PdfDocumentInfo openDocument(PdfSource source) throws Exception;
+
+    /** Open a PDF from the given byte array. See {@link #openDocument(PdfSource)}. */
+    default PdfDocumentInfo openDocument(byte[] pdfBytes) throws Exception {
+        return openDocument(PdfSource.ofBytes(pdfBytes));
+    }
+
+    /** Open a PDF from a local file. See {@link #openDocument(PdfSource)}. */
+    default PdfDocumentInfo openDocument(Path pdfFile) throws Exception {
+        return openDocument(PdfSource.ofFile(pdfFile));
+    }
 
     /**
      * Render one page to a BufferedImage (RGB colour space).
      *
      * @param pageIndex 0-based page index
      * @param dpi       rendering resolution; caller caps at 200
+     * @param cancelled polled during the render
+     * @throws CancellationException if {@code cancelled} returned true
      */
-    BufferedImage renderPage(int pageIndex, float dpi) throws Exception;
+    BufferedImage renderPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception;
+
+    /** Render one page without cancellation. See {@link #renderPage(int, float, BooleanSupplier)}. */
+    default BufferedImage renderPage(int pageIndex, float dpi) throws Exception {
+        return renderPage(pageIndex, dpi, NOT_CANCELLED);
+    }
+
+    /**
+     * Render a page known to have no colour as an 8-bit grey image
+     * ({@code TYPE_BYTE_GRAY}): a quarter of the memory, and less work for
+     * renderers that rasterise into it directly. Backends without a grey mode
+     * render in colour.
+     *
+     * @see #renderPage(int, float, BooleanSupplier)
+     */
+    default BufferedImage renderGreyPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception {
+        return renderPage(pageIndex, dpi, cancelled);
+    }
+
+    /**
+     * Render the contiguous page range {@code firstPage..lastPage} (inclusive).
+     * Backends that can amortise process start-up or document parsing over
+     * several pages override this; the default renders the pages one by one.
+     *
+     * @return one image per page, in page order
+     */
+    default List<BufferedImage> renderPages(int firstPage, int lastPage, float dpi,
+                                            BooleanSupplier cancelled) throws Exception {
+        List<BufferedImage> images = new ArrayList<>(lastPage - firstPage + 1);
+        for (int i = firstPage; i <= lastPage; i++) images.add(renderPage(i, dpi, cancelled));
+        return images;
+    }
+
+    /** Render a page range without cancellation. */
+    default List<BufferedImage> renderPages(int firstPage, int lastPage, float dpi) throws Exception {
+        return renderPages(firstPage, lastPage, dpi, NOT_CANCELLED);
+    }
+
+    /**
+     * This backend's {@link RegionRenderer}, if it can rasterise just a region
+     * of a page. Zoom tiles need it; empty (the default) means they are not offered.
+     */
+    default Optional<RegionRenderer> regionRenderer() {
+        return Optional.empty();
+    }
+
+    /**
+     * Number of pages worth rendering in one {@link #renderPages} call.
+     * 1 (the default) means batching brings no benefit over single pages.
+     */
+    default int preferredBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Size of a page in PDF points (1/72 inch) as it will be rendered: the crop
+     * box, with width and height swapped for pages rotated by 90 or 270 degrees.
+     * Used to pick a resolution that fits the viewport.
+     *
+     * @return the page size, or null (the default) if the backend cannot tell cheaply
+     */
+    default PageSize pageSize(int pageIndex) throws Exception {
+        return null;
+    }
+
+    /**
+     * Read metadata that {@link #openDocument} leaves out so the first page
+     * is shown sooner, such as title and author. Called once per document,
+     * after the first page is on screen.
+     *
+     * @param info what {@code openDocument} returned
+     * @return {@code info} with the metadata filled in; {@code info} itself
+     *         (the default) if there is nothing to add
+     */
+    default PdfDocumentInfo readMetadata(PdfDocumentInfo info) throws Exception {
+        return info;
+    }
 
     /** Release all resources held for the current document. */
     void closeDocument();
 
+    /** Page dimensions in PDF points. */
+    record PageSize(float width, float height) {}
+
     /** Thrown when the PDF requires a password. */
     class EncryptedPdfException extends Exception {
         public EncryptedPdfException() {
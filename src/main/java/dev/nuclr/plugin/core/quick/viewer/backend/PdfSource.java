@@ -0,0 +1,102 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Seekable input for {@link PdfRenderBackend#openDocument(PdfSource)}.
+ *
+ * <p>A source is either a regular local file, which backends read in place
+ * (memory-mapped, random access, or passed straight to a CLI tool), or an
+ * in-memory byte array for items that do not live on the local file system.
+ * Backends should prefer {@link #file()} and only call {@link #bytes()} when
+ * they genuinely need the whole document on the heap.
+ *
+ * <p>Backends that need a path even for in-memory sources (CLI tools) share
+ * one temp copy per source through {@link #acquireTempFile()}, so a render
+ * pool of N instances writes the document to disk once, not N times.
+ */
+public final class PdfSource {
+
+    private final Path   file;
+    private final byte[] bytes;
+
+    // Guarded by this
+    private Path tempFile;
+    private int  tempFileUsers;
+
+    private PdfSource(Path file, byte[] bytes) {
+        this.file  = file;
+        this.bytes = bytes;
+    }
+
+    public static PdfSource ofFile(Path file) {
+        return new PdfSource(Objects.requireNonNull(file, "file"), null);
+    }
+
+    public static PdfSource ofBytes(byte[] bytes) {
+        return new PdfSource(null, Objects.requireNonNull(bytes, "bytes"));
+    }
+
+    /** The backing local file, or null for in-memory sources. */
+    public Path file() {
+        return file;
+    }
+
+    /** True when the source is a local file that can be read in place. */
+    public boolean isFile() {
+        return file != null;
+    }
+
+    /**
+     * The whole document as bytes. For file sources this reads the file on
+     * every call, so callers should check {@link #isFile()} first.
+     */
+    public byte[] bytes() throws IOException {
+        return bytes != null ? bytes : Files.readAllBytes(file);
+    }
+
+    /** Document size in bytes. */
+    public long length() throws IOException {
+        return bytes != null ? bytes.length : Files.size(file);
+    }
+
+    /**
+     * A file holding this source: the file itself for file sources, otherwise
+     * a temp copy written on first use and shared by all callers. Every call
+     * must be paired with {@link #releaseTempFile()}.
+     */
+    public synchronized Path acquireTempFile() throws IOException {
+        if (file != null) return file;
+        if (tempFile == null) {
+            Path f = Files.createTempFile("nuclr-pdf-", ".pdf");
+            try {
+                Files.write(f, bytes);
+            } catch (IOException e) {
+                Files.deleteIfExists(f);
+                throw e;
+            }
+            tempFile = f;
+        }
+        tempFileUsers++;
+        return tempFile;
+    }
+
+    /** Undo one {@link #acquireTempFile()}; the last release deletes the temp copy. */
+    public synchronized void releaseTempFile() {
+        if (file != null || tempFileUsers == 0 || --tempFileUsers > 0) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+            // left for the OS to clean up
+        }
+        tempFile = null;
+    }
+
+    @Override
+    public String toString() {
+        return file != null ? file.toString() : "<" + bytes.length + " bytes>";
+    }
+}
@@ -3,23 +3,40 @@ package dev.nuclr.plugin.core.quick.viewer.backend;
 import dev.nuclr.plugin.core.quick.viewer.PdfDocumentInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * PDF rendering backend using Apache PDFBox 3.x.
  * Always available — no external tools required.
  */
 @Slf4j
-public class PdfboxBackend implements PdfRenderBackend {
+public class PdfboxBackend implements PdfRenderBackend, RegionRenderer {
 
     private PDDocument document;
-    private PDFRenderer renderer;
+    private CancellablePdfRenderer renderer;
 
     @Override
     public String name() {
@@ -32,32 +49,144 @@ public class PdfboxBackend implements PdfRenderBackend {
     }
 
     @Override
-    public PdfDocumentInfo openDocument(byte[] pdfBytes) throws Exception {
+    public PdfRenderBackend newInstance() {
+        return new PdfboxBackend();
+    }
+
+    /**
+     * Open the document without copying local files onto the heap. Files up to
+     * 2 GB are memory-mapped; larger ones are read through a buffered
+     * random-access file, so only the xref and the objects a page actually
+     * needs are ever fetched. The document owns the reader and closes it in
+     * {@link #closeDocument()}.
+     */
+    @Override
+    public PdfDocumentInfo openDocument(PdfSource source) throws Exception {
         closeDocument();
+        RandomAccessRead reader = source.isFile() ? openFile(source.file()) : null;
         try {
-            document = Loader.loadPDF(pdfBytes);
+            document = reader != null
+                    ? Loader.loadPDF(reader)
+                    : Loader.loadPDF(source.bytes());
         } catch (InvalidPasswordException e) {
+            if (reader != null) reader.close();
             throw new EncryptedPdfException();
+        } catch (Exception e) {
+            if (reader != null) reader.close();
+            throw e;
         }
+        return initDocument();
+    }
+
+    private static RandomAccessRead openFile(Path pdfFile) throws IOException {
+        return Files.size(pdfFile) < Integer.MAX_VALUE
+                ? new RandomAccessReadMemoryMappedFile(pdfFile)
+                : new RandomAccessReadBufferedFile(pdfFile);
+    }
 
-        renderer = new PDFRenderer(document);
+    private PdfDocumentInfo initDocument() {
+        renderer = new CancellablePdfRenderer(document);
         renderer.setSubsamplingAllowed(true);
 
-        PDDocumentInformation docInfo = document.getDocumentInformation();
-        String title  = sanitize(docInfo != null ? docInfo.getTitle()  : null);
-        String author = sanitize(docInfo != null ? docInfo.getAuthor() : null);
+        // Header and page tree root only; the info dictionary is read later
         int    pages  = document.getNumberOfPages();
         String ver    = String.format("PDF %.1f", document.getVersion());
 
         log.info("Opened PDF via PDFBox: {} pages, {}", pages, ver);
-        return new PdfDocumentInfo(title, author, pages, ver, false);
+        return new PdfDocumentInfo(null, null, pages, ver, false);
     }
 
     @Override
-    public BufferedImage renderPage(int pageIndex, float dpi) throws Exception {
+    public PdfDocumentInfo readMetadata(PdfDocumentInfo info) {
+        if (document == null) throw new IllegalStateException("No document open");
+        PDDocumentInformation docInfo = document.getDocumentInformation();
+        String title  = sanitize(docInfo != null ? docInfo.getTitle()  : null);
+        String author = sanitize(docInfo != null ? docInfo.getAuthor() : null);
+        return title == null && author == null ? info : info.withMetadata(title, author);
+    }
+
+    @Override
+    public BufferedImage renderPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception {
+        return render(pageIndex, dpi, ImageType.RGB, cancelled);
+    }
+
+    /** Rasterises straight into a {@code TYPE_BYTE_GRAY} image. */
+    @Override
+    public BufferedImage renderGreyPage(int pageIndex, float dpi, BooleanSupplier cancelled) throws Exception {
+        return render(pageIndex, dpi, ImageType.GRAY, cancelled);
+    }
+
+    private BufferedImage render(int pageIndex, float dpi, ImageType type, BooleanSupplier cancelled) throws Exception {
         if (renderer == null) throw new IllegalStateException("No document open");
-        log.debug("PDFBox: rendering page {} at {} DPI", pageIndex, dpi);
-        return renderer.renderImageWithDPI(pageIndex, dpi, ImageType.RGB);
+        log.debug("PDFBox: rendering page {} at {} DPI ({})", pageIndex, dpi, type);
+        renderer.setCancellation(cancelled);
+        try {
+            return renderer.renderImageWithDPI(pageIndex, dpi, type);
+        } finally {
+            renderer.setCancellation(null);
+        }
+    }
+
+    @Override
+    public Optional<RegionRenderer> regionRenderer() {
+        return Optional.of(this);
+    }
+
+    /**
+     * Draw the page into a region-sized image with the origin shifted, so only
+     * the pixels of the region are ever allocated and rasterised.
+     */
+    @Override
+    public BufferedImage renderRegion(int pageIndex, float dpi, Rectangle region,
+                                      BooleanSupplier cancelled) throws Exception {
+        if (renderer == null) throw new IllegalStateException("No document open");
+        log.debug("PDFBox: rendering page {} region {} at {} DPI", pageIndex, region, dpi);
+        BufferedImage img = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setBackground(Color.WHITE);
+            g.clearRect(0, 0, region.width, region.height);
+            g.translate(-region.x, -region.y);
+            renderer.setCancellation(cancelled);
+            renderer.renderPageToGraphics(pageIndex, g, dpi / 72f);
+        } finally {
+            renderer.setCancellation(null);
+            g.dispose();
+        }
+        return img;
+    }
+
+    @Override
+    public PageSize pageSize(int pageIndex) {
+        if (document == null) throw new IllegalStateException("No document open");
+        return sizeOf(document.getPage(pageIndex));
+    }
+
+    /**
+     * Render the first page of a linearized document from the start of the
+     * file alone, before the rest has been read. {@code prefix} must extend to
+     * {@link PdfLinearization#firstPageEnd()}: the first page and everything
+     * it draws are stored there, while the page tree usually is not, so the
+     * page object is looked up by number and rendered on its own.
+     *
+     * @param dpiFor resolution to render at, given the size of the first page
+     * @throws IOException if the prefix does not contain a usable first page
+     */
+    public static BufferedImage renderFirstPage(byte[] prefix, PdfLinearization lin,
+                                                ToDoubleFunction<PageSize> dpiFor) throws IOException {
+        try (PDDocument partial = Loader.loadPDF(prefix)) {
+            COSObject ref = partial.getDocument().getObjectFromPool(new COSObjectKey(lin.firstPageObject(), 0));
+            if (!(ref.getObject() instanceof COSDictionary page)) {
+                throw new IOException("First page object " + lin.firstPageObject() + " not in prefix");
+            }
+            try (PDDocument single = new PDDocument()) {
+                PDPage first = new PDPage(page);
+                single.addPage(first);
+                PDFRenderer renderer = new PDFRenderer(single);
+                renderer.setSubsamplingAllowed(true);
+                return renderer.renderImageWithDPI(0, (float) dpiFor.applyAsDouble(sizeOf(first)), ImageType.RGB);
+            }
+        }
     }
 
     @Override
@@ -73,6 +202,14 @@ public class PdfboxBackend implements PdfRenderBackend {
         }
     }
 
+    /** Crop box size as displayed, i.e. with width and height swapped for quarter-turn rotations. */
+    private static PageSize sizeOf(PDPage page) {
+        PDRectangle box = page.getCropBox();
+        return page.getRotation() % 180 != 0
+                ? new PageSize(box.getHeight(), box.getWidth())
+                : new PageSize(box.getWidth(), box.getHeight());
+    }
+
     private static String sanitize(String s) {
         return (s != null && !s.isBlank()) ? s.trim() : null;
     }
@@ -0,0 +1,138 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Minimal decoder for the raw Netpbm formats the CLI tools can write to stdout:
+ * binary PGM ({@code P5}), PPM ({@code P6}) and PAM ({@code P7}), 8 bits per
+ * sample. Pixels are copied straight into the raster of a freshly allocated
+ * {@link BufferedImage}, avoiding the PNG encode/decode round trip.
+ *
+ * <p>Several images may be concatenated on one stream (multi-page output);
+ * call {@link #read(InputStream)} repeatedly until it returns null.
+ */
+final class PnmDecoder {
+
+    private PnmDecoder() {}
+
+    /**
+     * Decode the next image from {@code in}.
+     *
+     * @return the image ({@code TYPE_BYTE_GRAY} for grey input, otherwise
+     *         {@code TYPE_INT_RGB}; alpha is dropped), or null at end of stream
+     * @throws IOException on malformed or truncated data
+     */
+    static BufferedImage read(InputStream in) throws IOException {
+        int c = in.read();
+        if (c < 0) return null;
+        if (c != 'P') throw new IOException("Not a PNM stream");
+        int kind = in.read();
+
+        int width, height, depth, maxval;
+        switch (kind) {
+            case '5', '6' -> {
+                width  = readInt(in);
+                height = readInt(in);
+                maxval = readInt(in);
+                depth  = kind == '5' ? 1 : 3;
+                // readInt consumed the single whitespace byte after maxval
+            }
+            case '7' -> {
+                int[] hdr = readPamHeader(in);
+                width = hdr[0]; height = hdr[1]; depth = hdr[2]; maxval = hdr[3];
+            }
+            default -> throw new IOException("Unsupported PNM type P" + (char) kind);
+        }
+        if (width <= 0 || height <= 0 || depth < 1 || depth > 4) {
+            throw new IOException("Bad PNM header: " + width + "x" + height + "x" + depth);
+        }
+        if (maxval > 255) throw new IOException("16-bit PNM is not supported");
+
+        if (depth == 1) {
+            BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            byte[] dst = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+            readFully(in, dst, dst.length);
+            return img;
+        }
+
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[]  dst = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        byte[] row = new byte[width * depth];
+        boolean grey = depth == 2;
+        for (int y = 0, o = 0; y < height; y++) {
+            readFully(in, row, row.length);
+            for (int x = 0, i = 0; x < width; x++, i += depth) {
+                int r = row[i] & 0xFF;
+                int g = grey ? r : row[i + 1] & 0xFF;
+                int b = grey ? r : row[i + 2] & 0xFF;
+                dst[o++] = (r << 16) | (g << 8) | b;
+            }
+        }
+        return img;
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /** Parse WIDTH/HEIGHT/DEPTH/MAXVAL up to ENDHDR; returns them in that order. */
+    private static int[] readPamHeader(InputStream in) throws IOException {
+        int[] hdr = {0, 0, 0, 255};
+        while (true) {
+            String line = readLine(in).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            if (line.equals("ENDHDR")) return hdr;
+            String[] kv = line.split("\\s+", 2);
+            if (kv.length < 2) continue;
+            switch (kv[0]) {
+                case "WIDTH"  -> hdr[0] = Integer.parseInt(kv[1].trim());
+                case "HEIGHT" -> hdr[1] = Integer.parseInt(kv[1].trim());
+                case "DEPTH"  -> hdr[2] = Integer.parseInt(kv[1].trim());
+                case "MAXVAL" -> hdr[3] = Integer.parseInt(kv[1].trim());
+                default       -> { /* TUPLTYPE and unknown keys are implied by DEPTH */ }
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) throw new EOFException("Truncated PAM header");
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Read a decimal header token, skipping leading whitespace and comments.
+     * Consumes exactly one whitespace byte after the token.
+     */
+    private static int readInt(InputStream in) throws IOException {
+        int c = in.read();
+        while (true) {
+            if (c < 0) throw new EOFException("Truncated PNM header");
+            if (c == '#') {
+                while (c != '\n' && c >= 0) c = in.read();
+            } else if (Character.isWhitespace(c)) {
+                c = in.read();
+            } else {
+                break;
+            }
+        }
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            c = in.read();
+        }
+        if (c >= 0 && !Character.isWhitespace(c)) throw new IOException("Bad PNM header");
+        return value;
+    }
+
+    private static void readFully(InputStream in, byte[] buf, int len) throws IOException {
+        if (in.readNBytes(buf, 0, len) != len) throw new EOFException("Truncated PNM data");
+    }
+}
@@ -0,0 +1,27 @@
+package dev.nuclr.plugin.core.quick.viewer.backend;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Optional capability of a {@link PdfRenderBackend}: rendering only a region
+ * of a page, for zoomed tiles where the full page raster would be too large
+ * to hold. Rendering the whole page and cropping it is no substitute, so
+ * backends that cannot clip while rasterising do not offer it; see
+ * {@link PdfRenderBackend#regionRenderer()}.
+ *
+ * <p>Same threading and cancellation contract as the backend it belongs to.
+ */
+@FunctionalInterface
+public interface RegionRenderer {
+
+    /**
+     * Render {@code region} of a page, given in pixel coordinates of the
+     * whole page rendered at {@code dpi}.
+     *
+     * @return an RGB image of {@code region}'s size (smaller if it extends past the page)
+     */
+    BufferedImage renderRegion(int pageIndex, float dpi, Rectangle region,
+                               BooleanSupplier cancelled) throws Exception;
+}